@@ -0,0 +1,848 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.vaticle.typedb.common.collection;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.IntConsumer;
+
+/**
+ * A compressed set of ints in the style of Roaring bitmaps. Values are partitioned by their high 16 bits, and each
+ * partition of low 16 bits is held in whichever container is smallest for its contents: a sorted array for sparse
+ * partitions, a 65536-bit bitmap for dense ones, or a list of runs after {@link #runOptimize()}. Set algebra between
+ * two bitmaps pairs up partitions by key and combines containers a word at a time where both are bitmaps.
+ *
+ * Values are ordered as unsigned ints. Not thread-safe.
+ */
+public class BitmapSet {
+
+    private static final int ARRAY_MAX_SIZE = 4096;
+    private static final int BITMAP_WORDS = 1 << 10;
+    private static final byte ARRAY = 0;
+    private static final byte BITMAP = 1;
+    private static final byte RUN = 2;
+    private static final int SERIAL_VERSION = 1;
+
+    private char[] keys;
+    private Container[] containers;
+    private int size;
+
+    public BitmapSet() {
+        this(new char[4], new Container[4], 0);
+    }
+
+    private BitmapSet(char[] keys, Container[] containers, int size) {
+        this.keys = keys;
+        this.containers = containers;
+        this.size = size;
+    }
+
+    public static BitmapSet of(int... values) {
+        BitmapSet set = new BitmapSet();
+        for (int value : values) set.add(value);
+        return set;
+    }
+
+    public boolean add(int value) {
+        char high = high(value);
+        int index = indexOf(high);
+        if (index >= 0) {
+            Container container = containers[index];
+            int before = container.cardinality();
+            containers[index] = container.add(low(value));
+            return containers[index].cardinality() > before;
+        }
+        insertContainer(-index - 1, high, new ArrayContainer().add(low(value)));
+        return true;
+    }
+
+    public boolean remove(int value) {
+        int index = indexOf(high(value));
+        if (index < 0) return false;
+        Container container = containers[index];
+        int before = container.cardinality();
+        Container removed = container.remove(low(value));
+        if (removed.cardinality() == 0) removeContainer(index);
+        else containers[index] = removed;
+        return removed.cardinality() < before;
+    }
+
+    public boolean contains(int value) {
+        int index = indexOf(high(value));
+        return index >= 0 && containers[index].contains(low(value));
+    }
+
+    public long cardinality() {
+        long cardinality = 0;
+        for (int i = 0; i < size; i++) cardinality += containers[i].cardinality();
+        return cardinality;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public BitmapSet and(BitmapSet other) {
+        int capacity = Math.min(size, other.size);
+        BitmapSet result = new BitmapSet(new char[capacity], new Container[capacity], 0);
+        int i = 0, j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) i++;
+            else if (keys[i] > other.keys[j]) j++;
+            else {
+                Container container = and(containers[i], other.containers[j]);
+                if (container.cardinality() > 0) result.appendContainer(keys[i], container);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    public boolean intersects(BitmapSet other) {
+        int i = 0, j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) i++;
+            else if (keys[i] > other.keys[j]) j++;
+            else if (intersects(containers[i++], other.containers[j++])) return true;
+        }
+        return false;
+    }
+
+    public BitmapSet or(BitmapSet other) {
+        BitmapSet result = new BitmapSet(new char[size + other.size], new Container[size + other.size], 0);
+        int i = 0, j = 0;
+        while (i < size || j < other.size) {
+            if (j >= other.size || (i < size && keys[i] < other.keys[j])) {
+                result.appendContainer(keys[i], containers[i++].copy());
+            } else if (i >= size || keys[i] > other.keys[j]) {
+                result.appendContainer(other.keys[j], other.containers[j++].copy());
+            } else {
+                result.appendContainer(keys[i], or(containers[i++], other.containers[j++]));
+            }
+        }
+        return result;
+    }
+
+    public BitmapSet andNot(BitmapSet other) {
+        BitmapSet result = new BitmapSet(new char[size], new Container[size], 0);
+        int i = 0, j = 0;
+        while (i < size) {
+            if (j >= other.size || keys[i] < other.keys[j]) {
+                result.appendContainer(keys[i], containers[i++].copy());
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                Container container = andNot(containers[i], other.containers[j]);
+                if (container.cardinality() > 0) result.appendContainer(keys[i], container);
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Convert each container to a run container wherever that is smaller.
+     */
+    public void runOptimize() {
+        for (int i = 0; i < size; i++) {
+            Container container = containers[i];
+            if (container instanceof RunContainer) continue;
+            int runs = countRuns(container);
+            if (RunContainer.serializedSize(runs) < container.serializedSize()) {
+                containers[i] = RunContainer.from(container, runs);
+            }
+        }
+    }
+
+    public void forEach(IntConsumer consumer) {
+        for (int i = 0; i < size; i++) containers[i].forEach(keys[i] << 16, consumer);
+    }
+
+    public PrimitiveIterator.OfInt iterator() {
+        return new Iterator();
+    }
+
+    public int[] toArray() {
+        int[] array = new int[(int) cardinality()];
+        int[] index = {0};
+        forEach(value -> array[index[0]++] = value);
+        return array;
+    }
+
+    public int serializedSizeInBytes() {
+        int bytes = 2 * Integer.BYTES;
+        for (int i = 0; i < size; i++) bytes += Character.BYTES + 1 + Integer.BYTES + containers[i].serializedSize();
+        return bytes;
+    }
+
+    /**
+     * Write this set into {@code buffer} at its position, advancing the position by {@link #serializedSizeInBytes()}.
+     */
+    public void serialize(ByteBuffer buffer) {
+        buffer.putInt(SERIAL_VERSION);
+        buffer.putInt(size);
+        for (int i = 0; i < size; i++) {
+            Container container = containers[i];
+            buffer.putChar(keys[i]);
+            buffer.put(container.type());
+            buffer.putInt(container.cardinality());
+            container.serialize(buffer);
+        }
+    }
+
+    public static BitmapSet deserialize(ByteBuffer buffer) {
+        int version = buffer.getInt();
+        if (version != SERIAL_VERSION) {
+            throw new IllegalArgumentException(String.format("Unsupported bitmap serialisation version '%d'.", version));
+        }
+        int size = buffer.getInt();
+        BitmapSet set = new BitmapSet(new char[size], new Container[size], 0);
+        for (int i = 0; i < size; i++) {
+            char key = buffer.getChar();
+            byte type = buffer.get();
+            int cardinality = buffer.getInt();
+            Container container;
+            if (type == ARRAY) container = ArrayContainer.deserialize(buffer, cardinality);
+            else if (type == BITMAP) container = BitmapContainer.deserialize(buffer, cardinality);
+            else if (type == RUN) container = RunContainer.deserialize(buffer, cardinality);
+            else throw new IllegalArgumentException(String.format("Unknown bitmap container type '%d'.", type));
+            set.appendContainer(key, container);
+        }
+        return set;
+    }
+
+    private static char high(int value) {
+        return (char) (value >>> 16);
+    }
+
+    private static char low(int value) {
+        return (char) value;
+    }
+
+    private int indexOf(char key) {
+        // the last container is checked first, as values are very often added in ascending order
+        if (size > 0 && keys[size - 1] == key) return size - 1;
+        int low = 0, high = size - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (keys[mid] < key) low = mid + 1;
+            else if (keys[mid] > key) high = mid - 1;
+            else return mid;
+        }
+        return -(low + 1);
+    }
+
+    private void insertContainer(int index, char key, Container container) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, Math.max(4, size * 2));
+            containers = Arrays.copyOf(containers, Math.max(4, size * 2));
+        }
+        System.arraycopy(keys, index, keys, index + 1, size - index);
+        System.arraycopy(containers, index, containers, index + 1, size - index);
+        keys[index] = key;
+        containers[index] = container;
+        size++;
+    }
+
+    private void appendContainer(char key, Container container) {
+        insertContainer(size, key, container);
+    }
+
+    private void removeContainer(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        containers[--size] = null;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) return true;
+        if (obj == null || obj.getClass() != this.getClass()) return false;
+        BitmapSet that = (BitmapSet) obj;
+        if (this.size != that.size) return false;
+        for (int i = 0; i < size; i++) {
+            if (keys[i] != that.keys[i]) return false;
+            Container a = containers[i].expand(), b = that.containers[i].expand();
+            if (a.cardinality() != b.cardinality() || andNot(a, b).cardinality() != 0) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int[] hash = {0};
+        forEach(value -> hash[0] = 31 * hash[0] + value);
+        return hash[0];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        forEach(value -> {
+            if (builder.length() > 1) builder.append(", ");
+            builder.append(Integer.toUnsignedString(value));
+        });
+        return builder.append("]").toString();
+    }
+
+    private static Container and(Container first, Container second) {
+        first = first.expand();
+        second = second.expand();
+        if (first instanceof ArrayContainer && second instanceof ArrayContainer) {
+            ArrayContainer a = (ArrayContainer) first, b = (ArrayContainer) second;
+            char[] out = new char[Math.min(a.size, b.size)];
+            int i = 0, j = 0, k = 0;
+            while (i < a.size && j < b.size) {
+                char x = a.values[i], y = b.values[j];
+                out[k] = x;
+                k += x == y ? 1 : 0;
+                i += x <= y ? 1 : 0;
+                j += x >= y ? 1 : 0;
+            }
+            return new ArrayContainer(out, k);
+        } else if (first instanceof ArrayContainer || second instanceof ArrayContainer) {
+            ArrayContainer a = (ArrayContainer) (first instanceof ArrayContainer ? first : second);
+            BitmapContainer b = (BitmapContainer) (first instanceof ArrayContainer ? second : first);
+            char[] out = new char[a.size];
+            int k = 0;
+            for (int i = 0; i < a.size; i++) {
+                out[k] = a.values[i];
+                k += b.contains(a.values[i]) ? 1 : 0;
+            }
+            return new ArrayContainer(out, k);
+        } else {
+            long[] a = ((BitmapContainer) first).words, b = ((BitmapContainer) second).words;
+            long[] out = new long[BITMAP_WORDS];
+            int cardinality = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) cardinality += Long.bitCount(out[i] = a[i] & b[i]);
+            return new BitmapContainer(out, cardinality).shrink();
+        }
+    }
+
+    private static boolean intersects(Container first, Container second) {
+        first = first.expand();
+        second = second.expand();
+        if (first instanceof BitmapContainer && second instanceof BitmapContainer) {
+            long[] a = ((BitmapContainer) first).words, b = ((BitmapContainer) second).words;
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                if ((a[i] & b[i]) != 0) return true;
+            }
+            return false;
+        } else if (first instanceof ArrayContainer && second instanceof ArrayContainer) {
+            ArrayContainer a = (ArrayContainer) first, b = (ArrayContainer) second;
+            int i = 0, j = 0;
+            while (i < a.size && j < b.size) {
+                if (a.values[i] == b.values[j]) return true;
+                if (a.values[i] < b.values[j]) i++;
+                else j++;
+            }
+            return false;
+        } else {
+            ArrayContainer a = (ArrayContainer) (first instanceof ArrayContainer ? first : second);
+            Container b = first instanceof ArrayContainer ? second : first;
+            for (int i = 0; i < a.size; i++) {
+                if (b.contains(a.values[i])) return true;
+            }
+            return false;
+        }
+    }
+
+    private static Container or(Container first, Container second) {
+        first = first.expand();
+        second = second.expand();
+        if (first instanceof ArrayContainer && second instanceof ArrayContainer) {
+            ArrayContainer a = (ArrayContainer) first, b = (ArrayContainer) second;
+            if (a.size + b.size > ARRAY_MAX_SIZE) return or(a.toBitmap(), b);
+            char[] out = new char[a.size + b.size];
+            int i = 0, j = 0, k = 0;
+            while (i < a.size && j < b.size) {
+                char x = a.values[i], y = b.values[j];
+                out[k++] = x <= y ? x : y;
+                i += x <= y ? 1 : 0;
+                j += x >= y ? 1 : 0;
+            }
+            System.arraycopy(a.values, i, out, k, a.size - i);
+            k += a.size - i;
+            System.arraycopy(b.values, j, out, k, b.size - j);
+            k += b.size - j;
+            return new ArrayContainer(out, k);
+        } else if (first instanceof ArrayContainer || second instanceof ArrayContainer) {
+            ArrayContainer a = (ArrayContainer) (first instanceof ArrayContainer ? first : second);
+            BitmapContainer b = (BitmapContainer) (first instanceof ArrayContainer ? second : first).copy();
+            for (int i = 0; i < a.size; i++) b.set(a.values[i]);
+            return b;
+        } else {
+            long[] a = ((BitmapContainer) first).words, b = ((BitmapContainer) second).words;
+            long[] out = new long[BITMAP_WORDS];
+            int cardinality = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) cardinality += Long.bitCount(out[i] = a[i] | b[i]);
+            return new BitmapContainer(out, cardinality);
+        }
+    }
+
+    private static Container andNot(Container first, Container second) {
+        first = first.expand();
+        second = second.expand();
+        if (first instanceof ArrayContainer) {
+            ArrayContainer a = (ArrayContainer) first;
+            char[] out = new char[a.size];
+            int k = 0;
+            for (int i = 0; i < a.size; i++) {
+                out[k] = a.values[i];
+                k += second.contains(a.values[i]) ? 0 : 1;
+            }
+            return new ArrayContainer(out, k);
+        } else if (second instanceof ArrayContainer) {
+            BitmapContainer a = (BitmapContainer) first.copy();
+            ArrayContainer b = (ArrayContainer) second;
+            for (int i = 0; i < b.size; i++) a.clear(b.values[i]);
+            return a.shrink();
+        } else {
+            long[] a = ((BitmapContainer) first).words, b = ((BitmapContainer) second).words;
+            long[] out = new long[BITMAP_WORDS];
+            int cardinality = 0;
+            for (int i = 0; i < BITMAP_WORDS; i++) cardinality += Long.bitCount(out[i] = a[i] & ~b[i]);
+            return new BitmapContainer(out, cardinality).shrink();
+        }
+    }
+
+    private static int countRuns(Container container) {
+        int[] runs = {0};
+        int[] previous = {-2};
+        container.forEach(0, value -> {
+            if (value != previous[0] + 1) runs[0]++;
+            previous[0] = value;
+        });
+        return runs[0];
+    }
+
+    private class Iterator implements PrimitiveIterator.OfInt {
+
+        private int containerIndex;
+        private int nextLow;
+
+        private Iterator() {
+            containerIndex = 0;
+            nextLow = size > 0 ? containers[0].nextValue(0) : -1;
+            skipExhausted();
+        }
+
+        private void skipExhausted() {
+            while (nextLow < 0 && ++containerIndex < size) nextLow = containers[containerIndex].nextValue(0);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return containerIndex < size;
+        }
+
+        @Override
+        public int nextInt() {
+            if (!hasNext()) throw new NoSuchElementException();
+            int value = keys[containerIndex] << 16 | nextLow;
+            nextLow = nextLow == 0xFFFF ? -1 : containers[containerIndex].nextValue(nextLow + 1);
+            skipExhausted();
+            return value;
+        }
+    }
+
+    private abstract static class Container {
+
+        abstract Container add(char value);
+
+        abstract Container remove(char value);
+
+        abstract boolean contains(char value);
+
+        abstract int cardinality();
+
+        /**
+         * @return the smallest value at least {@code from}, or -1 if there is none
+         */
+        abstract int nextValue(int from);
+
+        abstract void forEach(int high, IntConsumer consumer);
+
+        abstract Container copy();
+
+        abstract BitmapContainer toBitmap();
+
+        /**
+         * @return this container, or an equivalent array or bitmap container if this is a run container
+         */
+        Container expand() {
+            return this;
+        }
+
+        abstract byte type();
+
+        abstract int serializedSize();
+
+        abstract void serialize(ByteBuffer buffer);
+    }
+
+    private static class ArrayContainer extends Container {
+
+        private char[] values;
+        private int size;
+
+        private ArrayContainer() {
+            this(new char[4], 0);
+        }
+
+        private ArrayContainer(char[] values, int size) {
+            this.values = values;
+            this.size = size;
+        }
+
+        @Override
+        Container add(char value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index >= 0) return this;
+            if (size == ARRAY_MAX_SIZE) return toBitmap().add(value);
+            index = -index - 1;
+            if (size == values.length) values = Arrays.copyOf(values, Math.min(ARRAY_MAX_SIZE, size * 2));
+            System.arraycopy(values, index, values, index + 1, size - index);
+            values[index] = value;
+            size++;
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            int index = Arrays.binarySearch(values, 0, size, value);
+            if (index < 0) return this;
+            System.arraycopy(values, index + 1, values, index, size - index - 1);
+            size--;
+            return this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+
+        @Override
+        int cardinality() {
+            return size;
+        }
+
+        @Override
+        int nextValue(int from) {
+            int index = Arrays.binarySearch(values, 0, size, (char) from);
+            if (index < 0) index = -index - 1;
+            return index < size ? values[index] : -1;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer consumer) {
+            for (int i = 0; i < size; i++) consumer.accept(high | values[i]);
+        }
+
+        @Override
+        Container copy() {
+            return new ArrayContainer(Arrays.copyOf(values, Math.max(1, size)), size);
+        }
+
+        @Override
+        BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer(new long[BITMAP_WORDS], 0);
+            for (int i = 0; i < size; i++) bitmap.set(values[i]);
+            return bitmap;
+        }
+
+        @Override
+        byte type() {
+            return ARRAY;
+        }
+
+        @Override
+        int serializedSize() {
+            return size * Character.BYTES;
+        }
+
+        @Override
+        void serialize(ByteBuffer buffer) {
+            for (int i = 0; i < size; i++) buffer.putChar(values[i]);
+        }
+
+        private static ArrayContainer deserialize(ByteBuffer buffer, int cardinality) {
+            char[] values = new char[Math.max(1, cardinality)];
+            for (int i = 0; i < cardinality; i++) values[i] = buffer.getChar();
+            return new ArrayContainer(values, cardinality);
+        }
+    }
+
+    private static class BitmapContainer extends Container {
+
+        private final long[] words;
+        private int cardinality;
+
+        private BitmapContainer(long[] words, int cardinality) {
+            this.words = words;
+            this.cardinality = cardinality;
+        }
+
+        private void set(char value) {
+            long word = words[value >>> 6];
+            long updated = word | (1L << value);
+            words[value >>> 6] = updated;
+            cardinality += word == updated ? 0 : 1;
+        }
+
+        private void clear(char value) {
+            long word = words[value >>> 6];
+            long updated = word & ~(1L << value);
+            words[value >>> 6] = updated;
+            cardinality -= word == updated ? 0 : 1;
+        }
+
+        /**
+         * @return an array container with the same contents if this is sparse enough for one, otherwise this
+         */
+        private Container shrink() {
+            if (cardinality > ARRAY_MAX_SIZE) return this;
+            char[] values = new char[Math.max(1, cardinality)];
+            int[] index = {0};
+            forEach(0, value -> values[index[0]++] = (char) value);
+            return new ArrayContainer(values, cardinality);
+        }
+
+        @Override
+        Container add(char value) {
+            set(value);
+            return this;
+        }
+
+        @Override
+        Container remove(char value) {
+            clear(value);
+            return shrink();
+        }
+
+        @Override
+        boolean contains(char value) {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        int nextValue(int from) {
+            if (from >= BITMAP_WORDS * Long.SIZE) return -1;
+            int index = from >>> 6;
+            long word = words[index] & (-1L << from);
+            while (word == 0) {
+                if (++index == BITMAP_WORDS) return -1;
+                word = words[index];
+            }
+            return index * Long.SIZE + Long.numberOfTrailingZeros(word);
+        }
+
+        @Override
+        void forEach(int high, IntConsumer consumer) {
+            for (int i = 0; i < BITMAP_WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    consumer.accept(high | (i * Long.SIZE + Long.numberOfTrailingZeros(word)));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        @Override
+        Container copy() {
+            return new BitmapContainer(words.clone(), cardinality);
+        }
+
+        @Override
+        BitmapContainer toBitmap() {
+            return this;
+        }
+
+        @Override
+        byte type() {
+            return BITMAP;
+        }
+
+        @Override
+        int serializedSize() {
+            return BITMAP_WORDS * Long.BYTES;
+        }
+
+        @Override
+        void serialize(ByteBuffer buffer) {
+            for (long word : words) buffer.putLong(word);
+        }
+
+        private static BitmapContainer deserialize(ByteBuffer buffer, int cardinality) {
+            long[] words = new long[BITMAP_WORDS];
+            for (int i = 0; i < BITMAP_WORDS; i++) words[i] = buffer.getLong();
+            return new BitmapContainer(words, cardinality);
+        }
+    }
+
+    /**
+     * Runs are stored as pairs of (start, length - 1). Run containers are read-only: any change converts the run
+     * container into an array or bitmap container first.
+     */
+    private static class RunContainer extends Container {
+
+        private final char[] runs;
+        private final int runCount;
+        private final int cardinality;
+
+        private RunContainer(char[] runs, int runCount, int cardinality) {
+            this.runs = runs;
+            this.runCount = runCount;
+            this.cardinality = cardinality;
+        }
+
+        private static int serializedSize(int runCount) {
+            return Integer.BYTES + runCount * 2 * Character.BYTES;
+        }
+
+        private static RunContainer from(Container container, int runCount) {
+            char[] runs = new char[runCount * 2];
+            int[] run = {-1};
+            int[] previous = {-2};
+            container.forEach(0, value -> {
+                if (value != previous[0] + 1) {
+                    run[0]++;
+                    runs[2 * run[0]] = (char) value;
+                } else {
+                    runs[2 * run[0] + 1]++;
+                }
+                previous[0] = value;
+            });
+            return new RunContainer(runs, runCount, container.cardinality());
+        }
+
+        @Override
+        Container expand() {
+            if (cardinality > ARRAY_MAX_SIZE) return toBitmap();
+            char[] values = new char[Math.max(1, cardinality)];
+            int[] index = {0};
+            forEach(0, value -> values[index[0]++] = (char) value);
+            return new ArrayContainer(values, cardinality);
+        }
+
+        @Override
+        Container add(char value) {
+            return contains(value) ? this : expand().add(value);
+        }
+
+        @Override
+        Container remove(char value) {
+            return contains(value) ? expand().remove(value) : this;
+        }
+
+        @Override
+        boolean contains(char value) {
+            int run = runAtOrBefore(value);
+            return run >= 0 && value - runs[2 * run] <= runs[2 * run + 1];
+        }
+
+        /**
+         * @return the index of the last run starting at or before {@code value}, or -1 if there is none
+         */
+        private int runAtOrBefore(int value) {
+            int low = 0, high = runCount - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (runs[2 * mid] <= value) low = mid + 1;
+                else high = mid - 1;
+            }
+            return high;
+        }
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        int nextValue(int from) {
+            int run = runAtOrBefore(from);
+            if (run >= 0 && from - runs[2 * run] <= runs[2 * run + 1]) return from;
+            return run + 1 < runCount ? runs[2 * (run + 1)] : -1;
+        }
+
+        @Override
+        void forEach(int high, IntConsumer consumer) {
+            for (int run = 0; run < runCount; run++) {
+                int start = runs[2 * run];
+                int end = start + runs[2 * run + 1];
+                for (int value = start; value <= end; value++) consumer.accept(high | value);
+            }
+        }
+
+        @Override
+        Container copy() {
+            return this;
+        }
+
+        @Override
+        BitmapContainer toBitmap() {
+            long[] words = new long[BITMAP_WORDS];
+            for (int run = 0; run < runCount; run++) {
+                int start = runs[2 * run];
+                int end = start + runs[2 * run + 1];
+                int startWord = start >>> 6, endWord = end >>> 6;
+                for (int word = startWord; word <= endWord; word++) {
+                    long mask = -1L;
+                    if (word == startWord) mask &= -1L << start;
+                    if (word == endWord) mask &= -1L >>> (Long.SIZE - 1 - (end & 63));
+                    words[word] |= mask;
+                }
+            }
+            return new BitmapContainer(words, cardinality);
+        }
+
+        @Override
+        byte type() {
+            return RUN;
+        }
+
+        @Override
+        int serializedSize() {
+            return serializedSize(runCount);
+        }
+
+        @Override
+        void serialize(ByteBuffer buffer) {
+            buffer.putInt(runCount);
+            for (int i = 0; i < runCount * 2; i++) buffer.putChar(runs[i]);
+        }
+
+        private static RunContainer deserialize(ByteBuffer buffer, int cardinality) {
+            int runCount = buffer.getInt();
+            char[] runs = new char[runCount * 2];
+            for (int i = 0; i < runCount * 2; i++) runs[i] = buffer.getChar();
+            return new RunContainer(runs, runCount, cardinality);
+        }
+    }
+}
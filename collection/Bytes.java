@@ -17,43 +17,156 @@
 
 package com.vaticle.typedb.common.collection;
 
-import java.util.Map;
-
-import static com.vaticle.typedb.common.collection.Collections.map;
-import static com.vaticle.typedb.common.collection.Collections.pair;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
 
 public class Bytes {
 
     private static final String PREFIX = "0x";
-    // TODO: convert HEX_ARRAY to byte[] once upgraded to Java 9+
-    private static final char[] HEX_ARRAY = "0123456789abcdef".toCharArray();
-    private static final Map<Character, Integer> HEX_MAP = map(pair('0', 0), pair('1', 1), pair('2', 2), pair('3', 3),
-                                                               pair('4', 4), pair('5', 5), pair('6', 6), pair('7', 7),
-                                                               pair('8', 8), pair('9', 9), pair('a', 10), pair('b', 11),
-                                                               pair('c', 12), pair('d', 13), pair('e', 14), pair('f', 15));
+    private static final byte[] HEX_ARRAY = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+    // indexed by character, holding the nibble it encodes, or -1 if it is not a hex digit
+    private static final byte[] HEX_VALUES = new byte[128];
+
+    static {
+        Arrays.fill(HEX_VALUES, (byte) -1);
+        for (int i = 0; i < 10; i++) HEX_VALUES['0' + i] = (byte) i;
+        for (int i = 0; i < 6; i++) {
+            HEX_VALUES['a' + i] = (byte) (10 + i);
+            HEX_VALUES['A' + i] = (byte) (10 + i);
+        }
+    }
 
     public static byte[] hexStringToBytes(String hexString) {
         assert hexString.length() % 2 == 0;
         assert hexString.startsWith(PREFIX);
+        return hexToBytes(hexString, PREFIX.length(), hexString.length() - PREFIX.length());
+    }
 
-        hexString = hexString.replace(PREFIX, "");
+    /**
+     * Decode {@code length} hex characters of {@code hex}, starting at {@code offset}, without any "0x" prefix.
+     */
+    public static byte[] hexToBytes(CharSequence hex, int offset, int length) {
+        byte[] bytes = new byte[length / 2];
+        hexToBytes(hex, offset, length, bytes, 0);
+        return bytes;
+    }
 
-        final int len = hexString.length();
-        final byte[] bytes = new byte[len / 2];
-        for (int i = 0; i < bytes.length; i++) {
-            bytes[i] = (byte) ((HEX_MAP.get(hexString.charAt(i * 2)) << 4) + HEX_MAP.get(hexString.charAt((i * 2) + 1)));
+    /**
+     * Decode {@code length} hex characters of {@code hex}, starting at {@code offset}, into {@code bytes} starting at
+     * {@code bytesOffset}.
+     *
+     * @return the number of bytes written
+     */
+    public static int hexToBytes(CharSequence hex, int offset, int length, byte[] bytes, int bytesOffset) {
+        checkHexLength(length);
+        int count = length / 2;
+        for (int i = 0; i < count; i++) {
+            bytes[bytesOffset + i] = decode(hex, offset + 2 * i);
+        }
+        return count;
+    }
+
+    /**
+     * Decode {@code length} hex characters of {@code hex}, starting at {@code offset}, into {@code buffer} at its
+     * position, advancing the position by the number of bytes written.
+     *
+     * @throws BufferOverflowException if the buffer has fewer than {@code length / 2} bytes remaining, in which case
+     * nothing is written
+     */
+    public static void hexToBytes(CharSequence hex, int offset, int length, ByteBuffer buffer) {
+        checkHexLength(length);
+        if (length / 2 > buffer.remaining()) throw new BufferOverflowException();
+        if (buffer.hasArray()) {
+            int written = hexToBytes(hex, offset, length, buffer.array(), buffer.arrayOffset() + buffer.position());
+            buffer.position(buffer.position() + written);
+        } else {
+            for (int i = 0; i < length; i += 2) buffer.put(decode(hex, offset + i));
         }
-        return bytes;
     }
 
     public static String bytesToHexString(byte[] bytes) {
-        final char[] hexChars = new char[bytes.length * 2];
-        for (int j = 0; j < bytes.length; j++) {
-            final int v = bytes[j] & 0xFF;
-            hexChars[j * 2] = HEX_ARRAY[v >>> 4];
-            hexChars[j * 2 + 1] = HEX_ARRAY[v & 0x0F];
-        }
-        // TODO when hexChars is a byte[]: return new String(hexChars, StandardCharsets.UTF_8);
-        return PREFIX + new String(hexChars);
+        return bytesToHexString(bytes, 0, bytes.length);
+    }
+
+    public static String bytesToHexString(byte[] bytes, int offset, int length) {
+        final byte[] hexChars = new byte[PREFIX.length() + length * 2];
+        hexChars[0] = '0';
+        hexChars[1] = 'x';
+        for (int j = 0; j < length; j++) {
+            final int v = bytes[offset + j] & 0xFF;
+            hexChars[PREFIX.length() + j * 2] = HEX_ARRAY[v >>> 4];
+            hexChars[PREFIX.length() + j * 2 + 1] = HEX_ARRAY[v & 0x0F];
+        }
+        // with compact strings, a Latin-1 byte array becomes the string's storage in a single copy
+        return new String(hexChars, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Encode the remaining bytes of {@code buffer}, without changing its position.
+     */
+    public static String bytesToHexString(ByteBuffer buffer) {
+        if (buffer.hasArray()) {
+            return bytesToHexString(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytesToHexString(bytes);
+    }
+
+    /**
+     * Stream {@code length} bytes from {@code offset} as hex characters, without a "0x" prefix, into {@code out}.
+     */
+    public static void appendHex(byte[] bytes, int offset, int length, Appendable out) {
+        try {
+            if (out instanceof StringBuilder) ((StringBuilder) out).ensureCapacity(((StringBuilder) out).length() + length * 2);
+            for (int j = 0; j < length; j++) {
+                final int v = bytes[offset + j] & 0xFF;
+                out.append((char) HEX_ARRAY[v >>> 4]).append((char) HEX_ARRAY[v & 0x0F]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Stream the remaining bytes of {@code buffer} as hex characters, without a "0x" prefix, into {@code out}, without
+     * changing the buffer's position.
+     */
+    public static void appendHex(ByteBuffer buffer, Appendable out) {
+        if (buffer.hasArray()) {
+            appendHex(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining(), out);
+            return;
+        }
+        try {
+            for (int j = buffer.position(); j < buffer.limit(); j++) {
+                final int v = buffer.get(j) & 0xFF;
+                out.append((char) HEX_ARRAY[v >>> 4]).append((char) HEX_ARRAY[v & 0x0F]);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte decode(CharSequence hex, int index) {
+        return (byte) (nibble(hex, index) << 4 | nibble(hex, index + 1));
+    }
+
+    private static int nibble(CharSequence hex, int index) {
+        char c = hex.charAt(index);
+        int value = c < HEX_VALUES.length ? HEX_VALUES[c] : -1;
+        if (value < 0) {
+            throw new IllegalArgumentException(String.format("Illegal hex character '%s' at index %d.", c, index));
+        }
+        return value;
+    }
+
+    private static void checkHexLength(int length) {
+        if (length % 2 != 0) {
+            throw new IllegalArgumentException(String.format("Hex string length %d is not even.", length));
+        }
     }
 }
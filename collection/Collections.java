@@ -31,7 +31,9 @@ import java.util.Set;
 public class Collections {
 
     @SafeVarargs
+    @SuppressWarnings("varargs")
     public static <K, V> Map<K, V> map(Pair<K, V>... pairs) {
+        if (pairs.length <= ImmutableCollections.MAX_COMPACT_SIZE) return ImmutableCollections.mapOf(pairs);
         Map<K, V> map = new HashMap<>();
         for (Pair<K, V> tuple : pairs) {
             map.put(tuple.first(), tuple.second());
@@ -44,11 +46,16 @@ public class Collections {
     }
 
     @SafeVarargs
+    @SuppressWarnings("varargs")
     public static <T> Set<T> set(T... items) {
+        if (items.length <= ImmutableCollections.MAX_COMPACT_SIZE) return ImmutableCollections.setOf(items);
         return set(Arrays.asList(items));
     }
 
     public static <T> Set<T> set(Collection<T> collection) {
+        if (collection.size() <= ImmutableCollections.MAX_COMPACT_SIZE) {
+            return ImmutableCollections.setOf(collection.toArray());
+        }
         Set<T> set = new HashSet<>(collection);
         return java.util.Collections.unmodifiableSet(set);
     }
@@ -61,6 +68,33 @@ public class Collections {
         return java.util.Collections.unmodifiableSet(combined);
     }
 
+    /**
+     * Add to a persistent set without copying it: the result shares structure with {@code set}.
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public static <T> PersistentSet<T> set(PersistentSet<T> set, T item, T... items) {
+        return set.plus(item).plusAll(Arrays.asList(items));
+    }
+
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public static <T> PersistentSet<T> persistentSet(T... items) {
+        return PersistentSet.<T>empty().plusAll(Arrays.asList(items));
+    }
+
+    public static <T> PersistentSet<T> persistentSet(Collection<? extends T> collection) {
+        return PersistentSet.of(collection);
+    }
+
+    public static LongHashSet longSet(long... items) {
+        return LongHashSet.of(items).unmodifiable();
+    }
+
+    public static IntHashSet intSet(int... items) {
+        return IntHashSet.of(items).unmodifiable();
+    }
+
     @SafeVarargs
     public static <T> Set<T> concatToSet(Collection<? extends T> collection, Collection<? extends T>... collections) {
         Set<T> combined = new HashSet<>(collection);
@@ -69,8 +103,15 @@ public class Collections {
     }
 
     @SafeVarargs
+    public static <T> PersistentSet<T> concatToSet(PersistentSet<T> set, Collection<? extends T>... collections) {
+        for (Collection<? extends T> c : collections) set = set.plusAll(c);
+        return set;
+    }
+
+    @SafeVarargs
+    @SuppressWarnings("varargs")
     public static <T> List<T> list(T... items) {
-        return java.util.Collections.unmodifiableList(Arrays.asList(items));
+        return ImmutableCollections.listOf(items);
     }
 
     public static <T> List<T> list(Collection<T> collection) {
@@ -86,6 +127,25 @@ public class Collections {
         return java.util.Collections.unmodifiableList(combined);
     }
 
+    /**
+     * Append to a persistent list without copying it: the result shares structure with {@code list}.
+     */
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public static <T> PersistentVector<T> list(PersistentVector<T> list, T item, T... array) {
+        return list.plus(item).plusAll(Arrays.asList(array));
+    }
+
+    @SafeVarargs
+    @SuppressWarnings("varargs")
+    public static <T> PersistentVector<T> persistentList(T... items) {
+        return PersistentVector.<T>empty().plusAll(Arrays.asList(items));
+    }
+
+    public static <T> PersistentVector<T> persistentList(Collection<? extends T> collection) {
+        return PersistentVector.of(collection);
+    }
+
     @SafeVarargs
     public static <T> List<T> concatToList(Collection<? extends T> collection, Collection<? extends T>... collections) {
         List<T> combined = new ArrayList<>(collection);
@@ -93,10 +153,32 @@ public class Collections {
         return java.util.Collections.unmodifiableList(combined);
     }
 
+    @SafeVarargs
+    public static <T> PersistentVector<T> concatToList(PersistentVector<T> list, Collection<? extends T>... collections) {
+        for (Collection<? extends T> c : collections) list = list.plusAll(c);
+        return list;
+    }
+
+    public static <K, V> PersistentMap<K, V> persistentMap() {
+        return PersistentMap.empty();
+    }
+
+    public static <K, V> PersistentMap<K, V> persistentMap(Map<? extends K, ? extends V> map) {
+        return PersistentMap.of(map);
+    }
+
     public static <A, B> Pair<A, B> pair(A first, B second) {
         return new Pair<>(first, second);
     }
 
+    public static LongPair longPair(long first, long second) {
+        return new LongPair(first, second);
+    }
+
+    public static IntLongPair intLongPair(int first, long second) {
+        return new IntLongPair(first, second);
+    }
+
     public static <A, B, C> Triple<A, B, C> triple(A first, B second, C third) {
         return new Triple<>(first, second, third);
     }
@@ -149,6 +231,60 @@ public class Collections {
         return false;
     }
 
+    /**
+     * Intersect sorted, duplicate-free arrays, galloping through the larger input when sizes are skewed
+     */
+    public static long[] intersection(long[] set1, long[] set2) {
+        return SortedArrays.intersection(set1, set2);
+    }
+
+    public static int[] intersection(int[] set1, int[] set2) {
+        return SortedArrays.intersection(set1, set2);
+    }
+
+    /**
+     * Intersect any number of sorted, duplicate-free arrays by leapfrogging between them
+     */
+    public static long[] intersection(long[]... sets) {
+        return SortedArrays.intersection(sets);
+    }
+
+    public static int[] intersection(int[]... sets) {
+        return SortedArrays.intersection(sets);
+    }
+
+    public static boolean hasIntersection(long[] set1, long[] set2) {
+        return SortedArrays.hasIntersection(set1, set2);
+    }
+
+    public static boolean hasIntersection(int[] set1, int[] set2) {
+        return SortedArrays.hasIntersection(set1, set2);
+    }
+
+    public static long[] union(long[] set1, long[] set2) {
+        return SortedArrays.union(set1, set2);
+    }
+
+    public static int[] union(int[] set1, int[] set2) {
+        return SortedArrays.union(set1, set2);
+    }
+
+    public static long[] difference(long[] set1, long[] set2) {
+        return SortedArrays.difference(set1, set2);
+    }
+
+    public static int[] difference(int[] set1, int[] set2) {
+        return SortedArrays.difference(set1, set2);
+    }
+
+    public static BitmapSet intersection(BitmapSet set1, BitmapSet set2) {
+        return set1.and(set2);
+    }
+
+    public static boolean hasIntersection(BitmapSet set1, BitmapSet set2) {
+        return set1.intersects(set2);
+    }
+
     /**
      * Optimised set intersection detection when using sorted sets
      */
@@ -0,0 +1,276 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.vaticle.typedb.common.collection;
+
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongConsumer;
+
+import static com.vaticle.typedb.common.collection.PrimitiveHashing.mix;
+
+/**
+ * A concurrent, insert-only hash set of primitive longs, for recording visited IDs from many threads at once. Keys are
+ * stored unboxed in an open-addressing table and inserted by CAS without locking, so adding a key never allocates.
+ *
+ * When a table fills up, the threads that notice help copy it into a table twice the size. Each helper claims the
+ * next range of slots that no helper has claimed yet, until none are left, so the copying is shared out rather than
+ * repeated by every helper. Copying seals every empty slot of the old table with a {@code MOVED} marker, so no further
+ * keys can land there, and leaves existing keys in place, so readers of the old table still see them. A thread only
+ * moves on to the new table once every range has been copied, waiting for the other helpers if it must, so by then
+ * every key of the old table is already present in the new one, and {@link #add(long)} returns true exactly once per
+ * key.
+ *
+ * The two marker values, 0 and {@link Long#MIN_VALUE}, are tracked separately when added as keys.
+ */
+public class ConcurrentLongSet {
+
+    private static final long EMPTY = 0L;
+    private static final long MOVED = Long.MIN_VALUE;
+    private static final int MIN_CAPACITY = 16;
+    private static final int MIGRATION_STRIDE = 256;
+
+    private final AtomicReference<Table> root;
+    private final AtomicBoolean containsEmpty = new AtomicBoolean(false);
+    private final AtomicBoolean containsMoved = new AtomicBoolean(false);
+
+    public ConcurrentLongSet() {
+        this(0);
+    }
+
+    public ConcurrentLongSet(int expectedSize) {
+        // concurrent tables are kept at most half full to keep probe runs, and hence contention, short
+        int capacity = Math.max(MIN_CAPACITY, Integer.highestOneBit(Math.max(1, expectedSize * 2) - 1) << 1);
+        root = new AtomicReference<>(new Table(capacity));
+    }
+
+    /**
+     * @return true if this call added the key, false if it was already present
+     */
+    public boolean add(long key) {
+        if (key == EMPTY) return containsEmpty.compareAndSet(false, true);
+        if (key == MOVED) return containsMoved.compareAndSet(false, true);
+        Table table = root.get();
+        while (true) {
+            int result = table.insert(key);
+            if (result == Table.ADDED) {
+                if (table.count.incrementAndGet() > table.threshold) migrate(table);
+                return true;
+            } else if (result == Table.PRESENT) {
+                return false;
+            } else {
+                table = migrate(table);
+            }
+        }
+    }
+
+    public boolean contains(long key) {
+        if (key == EMPTY) return containsEmpty.get();
+        if (key == MOVED) return containsMoved.get();
+        Table table = root.get();
+        while (table != null) {
+            int result = table.find(key);
+            if (result == Table.PRESENT) return true;
+            else if (result == Table.ABSENT) return false;
+            table = table.next.get();
+        }
+        return false;
+    }
+
+    /**
+     * @return the number of keys, which may lag behind additions in progress
+     */
+    public int size() {
+        int size = root.get().count.get();
+        if (containsEmpty.get()) size++;
+        if (containsMoved.get()) size++;
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Visit every key present when this call starts; keys added concurrently may or may not be visited.
+     */
+    public void forEach(LongConsumer consumer) {
+        PrimitiveIterator.OfLong iterator = iterator();
+        while (iterator.hasNext()) consumer.accept(iterator.nextLong());
+    }
+
+    /**
+     * @return a weakly consistent iterator, which returns every key present when it is created exactly once, and may
+     * or may not return keys added after that
+     */
+    public PrimitiveIterator.OfLong iterator() {
+        Table table = root.get();
+        while (table.next.get() != null) table = migrate(table);
+        return new Iterator(table, containsEmpty.get(), containsMoved.get());
+    }
+
+    /**
+     * Help copy the keys of {@code table} into its successor, creating the successor if there is none yet, by copying
+     * unclaimed ranges of slots until none are left. Return once every range has been copied, publishing the successor
+     * as the root.
+     *
+     * @return the successor table
+     */
+    private Table migrate(Table table) {
+        if (table.next.get() == null) table.next.compareAndSet(null, new Table(table.capacity() << 1));
+        Table next = table.next.get();
+        int capacity = table.capacity();
+        int start;
+        while ((start = table.claimed.get()) < capacity) {
+            int end = Math.min(start + MIGRATION_STRIDE, capacity);
+            if (!table.claimed.compareAndSet(start, end)) continue;
+            for (int i = start; i < end; i++) {
+                long key = table.keys.get(i);
+                if (key == EMPTY) {
+                    if (table.keys.compareAndSet(i, EMPTY, MOVED)) continue;
+                    key = table.keys.get(i);
+                }
+                if (key != MOVED) insert(next, key);
+            }
+            table.copied.addAndGet(end - start);
+        }
+        // ranges claimed by other helpers may still be in progress, and their keys must reach the successor first
+        while (table.copied.get() < capacity) Thread.yield();
+        root.compareAndSet(table, next);
+        return next;
+    }
+
+    private void insert(Table table, long key) {
+        while (true) {
+            int result = table.insert(key);
+            if (result == Table.ADDED) {
+                if (table.count.incrementAndGet() > table.threshold) migrate(table);
+                return;
+            } else if (result == Table.PRESENT) {
+                return;
+            } else {
+                table = migrate(table);
+            }
+        }
+    }
+
+    private static class Table {
+
+        private static final int ADDED = 0;
+        private static final int PRESENT = 1;
+        private static final int ABSENT = 2;
+        private static final int FORWARDED = 3;
+
+        private final AtomicLongArray keys;
+        private final int mask;
+        private final int threshold;
+        private final AtomicInteger count = new AtomicInteger(0);
+        private final AtomicInteger claimed = new AtomicInteger(0);
+        private final AtomicInteger copied = new AtomicInteger(0);
+        private final AtomicReference<Table> next = new AtomicReference<>(null);
+
+        private Table(int capacity) {
+            keys = new AtomicLongArray(capacity);
+            mask = capacity - 1;
+            threshold = capacity >>> 1;
+        }
+
+        private int capacity() {
+            return mask + 1;
+        }
+
+        private int insert(long key) {
+            int index = mix(key) & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                long existing = keys.get(index);
+                if (existing == EMPTY) {
+                    if (keys.compareAndSet(index, EMPTY, key)) return ADDED;
+                    existing = keys.get(index);
+                }
+                if (existing == key) return PRESENT;
+                else if (existing == MOVED) return FORWARDED;
+                index = (index + 1) & mask;
+            }
+            return FORWARDED;
+        }
+
+        private int find(long key) {
+            int index = mix(key) & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                long existing = keys.get(index);
+                if (existing == key) return PRESENT;
+                else if (existing == EMPTY) return ABSENT;
+                else if (existing == MOVED) return FORWARDED;
+                index = (index + 1) & mask;
+            }
+            return FORWARDED;
+        }
+    }
+
+    private static class Iterator implements PrimitiveIterator.OfLong {
+
+        private final Table table;
+        private boolean emptyPending;
+        private boolean movedPending;
+        private int index;
+        private long nextKey;
+
+        private Iterator(Table table, boolean containsEmpty, boolean containsMoved) {
+            this.table = table;
+            this.emptyPending = containsEmpty;
+            this.movedPending = containsMoved;
+            this.index = -1;
+            advance();
+        }
+
+        private void advance() {
+            while (++index < table.capacity()) {
+                long key = table.keys.get(index);
+                if (key != EMPTY && key != MOVED) {
+                    nextKey = key;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return emptyPending || movedPending || index < table.capacity();
+        }
+
+        @Override
+        public long nextLong() {
+            if (emptyPending) {
+                emptyPending = false;
+                return EMPTY;
+            } else if (movedPending) {
+                movedPending = false;
+                return MOVED;
+            } else if (index >= table.capacity()) {
+                throw new NoSuchElementException();
+            }
+            long key = nextKey;
+            advance();
+            return key;
+        }
+    }
+}
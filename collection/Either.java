@@ -18,70 +18,179 @@
 
 package com.vaticle.typedb.common.collection;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
+import java.util.Spliterator;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
+/**
+ * A value that is either a {@code FIRST} or a {@code SECOND}. The side is held as a tag next to a single value field,
+ * so either side may hold null. Eithers of null and of booleans are shared singletons, and the hash is computed only
+ * when first needed.
+ */
 public class Either<FIRST, SECOND> {
 
-    private final FIRST first;
-    private final SECOND second;
-    private final int hash;
+    private static final Either<?, ?> FIRST_NULL = new Either<>(true, null);
+    private static final Either<?, ?> SECOND_NULL = new Either<>(false, null);
+    private static final Either<?, ?> FIRST_TRUE = new Either<>(true, Boolean.TRUE);
+    private static final Either<?, ?> FIRST_FALSE = new Either<>(true, Boolean.FALSE);
+    private static final Either<?, ?> SECOND_TRUE = new Either<>(false, Boolean.TRUE);
+    private static final Either<?, ?> SECOND_FALSE = new Either<>(false, Boolean.FALSE);
+
+    private final boolean isFirst;
+    private final Object value;
+    private int hash;
 
-    private Either(FIRST first, SECOND second) {
-        this.first = first;
-        this.second = second;
-        this.hash = Objects.hash(first, second);
+    private Either(boolean isFirst, Object value) {
+        this.isFirst = isFirst;
+        this.value = value;
     }
 
+    @SuppressWarnings("unchecked")
     public static <T, U> Either<T, U> first(T first) {
-        return new Either<>(first, null);
+        if (first == null) return (Either<T, U>) FIRST_NULL;
+        else if (first instanceof Boolean) return (Either<T, U>) ((Boolean) first ? FIRST_TRUE : FIRST_FALSE);
+        return new Either<>(true, first);
     }
 
+    @SuppressWarnings("unchecked")
     public static <T, U> Either<T, U> second(U second) {
-        return new Either<>(null, second);
+        if (second == null) return (Either<T, U>) SECOND_NULL;
+        else if (second instanceof Boolean) return (Either<T, U>) ((Boolean) second ? SECOND_TRUE : SECOND_FALSE);
+        return new Either<>(false, second);
     }
 
     public boolean isFirst() {
-        return first != null;
+        return isFirst;
     }
 
     public boolean isSecond() {
-        return second != null;
+        return !isFirst;
     }
 
+    /**
+     * @return the first value, or null if this is a second
+     */
+    @SuppressWarnings("unchecked")
     public FIRST first() {
-        return first;
+        return isFirst ? (FIRST) value : null;
     }
 
+    /**
+     * @return the second value, or null if this is a first
+     */
+    @SuppressWarnings("unchecked")
     public SECOND second() {
-        return second;
+        return isFirst ? null : (SECOND) value;
     }
 
     public void ifFirst(Consumer<FIRST> function) {
-        if (isFirst()) function.accept(first);
+        if (isFirst()) function.accept(first());
     }
 
     public void ifSecond(Consumer<SECOND> function) {
-        if (isSecond()) function.accept(second);
+        if (isSecond()) function.accept(second());
     }
 
     public <V> V apply(Function<FIRST, V> firstFn, Function<SECOND, V> secondFn) {
-        if (isFirst()) return firstFn.apply(first);
-        else return secondFn.apply(second);
+        return fold(firstFn, secondFn);
+    }
+
+    public <V> V fold(Function<? super FIRST, ? extends V> firstFn, Function<? super SECOND, ? extends V> secondFn) {
+        if (isFirst) return firstFn.apply(first());
+        else return secondFn.apply(second());
+    }
+
+    /**
+     * Transform the first value, passing a second through unchanged without allocating.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> Either<V, SECOND> map(Function<? super FIRST, ? extends V> function) {
+        if (isFirst) return first(function.apply(first()));
+        else return (Either<V, SECOND>) this;
+    }
+
+    /**
+     * Transform the second value, passing a first through unchanged without allocating.
+     */
+    @SuppressWarnings("unchecked")
+    public <V> Either<FIRST, V> mapSecond(Function<? super SECOND, ? extends V> function) {
+        if (isFirst) return (Either<FIRST, V>) this;
+        else return second(function.apply(second()));
+    }
+
+    @SuppressWarnings("unchecked")
+    public <V> Either<V, SECOND> flatMap(Function<? super FIRST, ? extends Either<? extends V, ? extends SECOND>> function) {
+        if (isFirst) return (Either<V, SECOND>) function.apply(first());
+        else return (Either<V, SECOND>) this;
+    }
+
+    /**
+     * Split a stream into its first and second values, each in encounter order. When the stream knows its exact size,
+     * both lists are views over a single array of that size, with firsts filled from the front and seconds from the
+     * back, so nothing is resized or copied.
+     */
+    public static <T, U> Pair<List<T>, List<U>> partition(Stream<Either<T, U>> stream) {
+        Spliterator<Either<T, U>> spliterator = stream.spliterator();
+        long size = spliterator.getExactSizeIfKnown();
+        if (size < 0 || size > Integer.MAX_VALUE - 8) return partition(spliterator, 16);
+        Object[] values = new Object[(int) size];
+        int[] bounds = {0, values.length};
+        spliterator.forEachRemaining(either -> {
+            if (either.isFirst) values[bounds[0]++] = either.value;
+            else values[--bounds[1]] = either.value;
+        });
+        int firsts = bounds[0];
+        for (int i = firsts, j = values.length - 1; i < j; i++, j--) {
+            Object swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+        List<Object> all = Arrays.asList(values);
+        return partitioned(all.subList(0, firsts), all.subList(firsts, values.length));
+    }
+
+    /**
+     * Split a stream into its first and second values, each in encounter order, with both lists sized for
+     * {@code expectedSize} elements up front.
+     */
+    public static <T, U> Pair<List<T>, List<U>> partition(Stream<Either<T, U>> stream, int expectedSize) {
+        return partition(stream.spliterator(), expectedSize);
+    }
+
+    private static <T, U> Pair<List<T>, List<U>> partition(Spliterator<Either<T, U>> spliterator, int expectedSize) {
+        List<Object> firsts = new ArrayList<>(expectedSize);
+        List<Object> seconds = new ArrayList<>(expectedSize);
+        spliterator.forEachRemaining(either -> (either.isFirst ? firsts : seconds).add(either.value));
+        return partitioned(firsts, seconds);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T, U> Pair<List<T>, List<U>> partitioned(List<Object> firsts, List<Object> seconds) {
+        return new Pair<>((List<T>) java.util.Collections.unmodifiableList(firsts),
+                (List<U>) java.util.Collections.unmodifiableList(seconds));
     }
 
     @Override
     public boolean equals(Object o) {
         if (o == null || this.getClass() != o.getClass()) return false;
         if (o == this) return true;
-        Either that = (Either) o;
-        return (Objects.equals(this.first, that.first) &&
-                Objects.equals(this.second, that.second));
+        Either<?, ?> that = (Either<?, ?>) o;
+        return this.isFirst == that.isFirst && Objects.equals(this.value, that.value);
     }
 
     @Override
     public int hashCode() {
-        return hash;
+        // equal to Objects.hash(first(), second()), computed on first use and cached
+        int h = hash;
+        if (h == 0) {
+            h = isFirst ? 31 * (31 + Objects.hashCode(value)) : 31 * 31 + Objects.hashCode(value);
+            hash = h;
+        }
+        return h;
     }
 }
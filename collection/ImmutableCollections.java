@@ -0,0 +1,410 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.vaticle.typedb.common.collection;
+
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+
+/**
+ * Compact immutable lists, sets and maps for the small collections built by {@link Collections}, in the manner of the
+ * JDK's own {@code ImmutableCollections}. Sets and maps hold their elements directly in a single open-addressing array
+ * with linear probing, with no per-entry nodes and no unmodifiable wrapper. Unlike the JDK's, they accept nulls and
+ * collapse duplicates, matching the {@code HashSet} and {@code HashMap} based collections they replace.
+ *
+ * Sets and maps larger than {@link #MAX_COMPACT_SIZE} are left to {@code HashSet} and {@code HashMap}, which degrade
+ * more gracefully under poor hash codes.
+ *
+ * Like the unmodifiable wrappers they replace, the collections are serializable. They are written through a
+ * {@link SerialProxy} holding just their elements, so the probing tables never appear in the serialized form.
+ */
+class ImmutableCollections {
+
+    static final int MAX_COMPACT_SIZE = 64;
+
+    // stands in for null inside the probing tables, where null marks an empty slot
+    private static final Object NULL = new Object();
+
+    static <T> List<T> listOf(T[] items) {
+        if (items.length == 0) return java.util.Collections.emptyList();
+        return new ListN<>(items);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> Set<T> setOf(Object[] items) {
+        assert items.length <= MAX_COMPACT_SIZE;
+        if (items.length == 0) return java.util.Collections.emptySet();
+        if (items.length == 1) return new Set1<>((T) items[0]);
+        Object[] table = new Object[tableSize(items.length)];
+        int size = 0;
+        for (Object item : items) {
+            int index = probe(table, 1, mask(item));
+            if (index < 0) {
+                table[-(index + 1)] = mask(item);
+                size++;
+            }
+        }
+        return size == 1 ? new Set1<>((T) items[0]) : new SetN<>(table, size);
+    }
+
+    static <K, V> Map<K, V> mapOf(Pair<K, V>[] pairs) {
+        assert pairs.length <= MAX_COMPACT_SIZE;
+        if (pairs.length == 0) return java.util.Collections.emptyMap();
+        Object[] table = new Object[2 * tableSize(pairs.length)];
+        int size = 0;
+        for (Pair<K, V> pair : pairs) {
+            int index = probe(table, 2, mask(pair.first()));
+            if (index < 0) {
+                index = -(index + 1);
+                table[index] = mask(pair.first());
+                size++;
+            }
+            table[index + 1] = pair.second();
+        }
+        return new MapN<>(table, size);
+    }
+
+    /**
+     * @return a power of two at least twice {@code size}, keeping probe runs short
+     */
+    private static int tableSize(int size) {
+        return Integer.highestOneBit(size * 2 - 1) << 1;
+    }
+
+    private static Object mask(Object item) {
+        return item == null ? NULL : item;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T unmask(Object item) {
+        return item == NULL ? null : (T) item;
+    }
+
+    /**
+     * Search a table of {@code stride}-sized slots, whose first element is the key, for {@code key}.
+     *
+     * @return the index of the key's slot, or {@code -(index + 1)} of the empty slot where it would go
+     */
+    private static int probe(Object[] table, int stride, Object key) {
+        int slots = table.length / stride;
+        int h = key.hashCode();
+        int slot = (h ^ (h >>> 16)) & (slots - 1);
+        while (true) {
+            Object existing = table[slot * stride];
+            if (existing == null) return -(slot * stride + 1);
+            else if (existing.equals(key)) return slot * stride;
+            slot = (slot + 1) & (slots - 1);
+        }
+    }
+
+    private static InvalidObjectException proxyRequired() {
+        return new InvalidObjectException("Compact immutable collections are deserialized through their proxy.");
+    }
+
+    private static class ListN<T> extends AbstractList<T> implements RandomAccess, Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final T[] items;
+
+        private ListN(T[] items) {
+            this.items = items;
+        }
+
+        @Override
+        public T get(int index) {
+            return items[index];
+        }
+
+        @Override
+        public int size() {
+            return items.length;
+        }
+
+        @Override
+        public int indexOf(Object item) {
+            for (int i = 0; i < items.length; i++) {
+                if (Objects.equals(items[i], item)) return i;
+            }
+            return -1;
+        }
+
+        @Override
+        public Object[] toArray() {
+            // the items may be held in an array of a narrower type, which toArray() must not expose
+            return Arrays.copyOf(items, items.length, Object[].class);
+        }
+
+        private Object writeReplace() {
+            return new SerialProxy(SerialProxy.LIST, toArray());
+        }
+
+        private void readObject(ObjectInputStream in) throws InvalidObjectException {
+            throw proxyRequired();
+        }
+    }
+
+    private static class Set1<T> extends AbstractSet<T> implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final T item;
+
+        private Set1(T item) {
+            this.item = item;
+        }
+
+        @Override
+        public int size() {
+            return 1;
+        }
+
+        @Override
+        public boolean contains(Object item) {
+            return Objects.equals(this.item, item);
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new Iterator<T>() {
+
+                private boolean hasNext = true;
+
+                @Override
+                public boolean hasNext() {
+                    return hasNext;
+                }
+
+                @Override
+                public T next() {
+                    if (!hasNext) throw new NoSuchElementException();
+                    hasNext = false;
+                    return item;
+                }
+            };
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(item);
+        }
+
+        private Object writeReplace() {
+            return new SerialProxy(SerialProxy.SET, toArray());
+        }
+
+        private void readObject(ObjectInputStream in) throws InvalidObjectException {
+            throw proxyRequired();
+        }
+    }
+
+    private static class SetN<T> extends AbstractSet<T> implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private final Object[] table;
+        private final int size;
+
+        private SetN(Object[] table, int size) {
+            this.table = table;
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean contains(Object item) {
+            return probe(table, 1, mask(item)) >= 0;
+        }
+
+        @Override
+        public Iterator<T> iterator() {
+            return new Iterator<T>() {
+
+                private int index = advance(0);
+
+                private int advance(int from) {
+                    while (from < table.length && table[from] == null) from++;
+                    return from;
+                }
+
+                @Override
+                public boolean hasNext() {
+                    return index < table.length;
+                }
+
+                @Override
+                public T next() {
+                    if (index >= table.length) throw new NoSuchElementException();
+                    T item = unmask(table[index]);
+                    index = advance(index + 1);
+                    return item;
+                }
+            };
+        }
+
+        private Object writeReplace() {
+            return new SerialProxy(SerialProxy.SET, toArray());
+        }
+
+        private void readObject(ObjectInputStream in) throws InvalidObjectException {
+            throw proxyRequired();
+        }
+    }
+
+    private static class MapN<K, V> extends AbstractMap<K, V> implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        // keys at even indices, each followed by its value
+        private final Object[] table;
+        private final int size;
+        private transient Set<Entry<K, V>> entrySet;
+
+        private MapN(Object[] table, int size) {
+            this.table = table;
+            this.size = size;
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return probe(table, 2, mask(key)) >= 0;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public V get(Object key) {
+            int index = probe(table, 2, mask(key));
+            return index >= 0 ? (V) table[index + 1] : null;
+        }
+
+        @Override
+        public Set<Entry<K, V>> entrySet() {
+            if (entrySet == null) {
+                entrySet = new AbstractSet<Entry<K, V>>() {
+                    @Override
+                    public Iterator<Entry<K, V>> iterator() {
+                        return new EntryIterator();
+                    }
+
+                    @Override
+                    public int size() {
+                        return size;
+                    }
+                };
+            }
+            return entrySet;
+        }
+
+        private Object writeReplace() {
+            Object[] keysAndValues = new Object[2 * size];
+            int i = 0;
+            for (int index = 0; index < table.length; index += 2) {
+                if (table[index] == null) continue;
+                keysAndValues[i++] = unmask(table[index]);
+                keysAndValues[i++] = table[index + 1];
+            }
+            return new SerialProxy(SerialProxy.MAP, keysAndValues);
+        }
+
+        private void readObject(ObjectInputStream in) throws InvalidObjectException {
+            throw proxyRequired();
+        }
+
+        private class EntryIterator implements Iterator<Entry<K, V>> {
+
+            private int index = advance(0);
+
+            private int advance(int from) {
+                while (from < table.length && table[from] == null) from += 2;
+                return from;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return index < table.length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public Entry<K, V> next() {
+                if (index >= table.length) throw new NoSuchElementException();
+                Entry<K, V> entry = new SimpleImmutableEntry<>(unmask(table[index]), (V) table[index + 1]);
+                index = advance(index + 2);
+                return entry;
+            }
+        }
+    }
+
+    /**
+     * The serialized form of every compact collection: its kind and its elements, or its keys and values
+     * interleaved. Reading it back rebuilds the collection through the same factories that built it.
+     */
+    private static class SerialProxy implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final int LIST = 0;
+        private static final int SET = 1;
+        private static final int MAP = 2;
+
+        private final int kind;
+        private final Object[] elements;
+
+        private SerialProxy(int kind, Object[] elements) {
+            this.kind = kind;
+            this.elements = elements;
+        }
+
+        private Object readResolve() throws InvalidObjectException {
+            switch (kind) {
+                case LIST:
+                    return listOf(elements);
+                case SET:
+                    return setOf(elements);
+                case MAP:
+                    @SuppressWarnings("unchecked")
+                    Pair<Object, Object>[] pairs = (Pair<Object, Object>[]) new Pair<?, ?>[elements.length / 2];
+                    for (int i = 0; i < pairs.length; i++) pairs[i] = new Pair<>(elements[2 * i], elements[2 * i + 1]);
+                    return mapOf(pairs);
+                default:
+                    throw new InvalidObjectException("Unknown compact collection kind: " + kind + ".");
+            }
+        }
+    }
+}
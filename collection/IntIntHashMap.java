@@ -0,0 +1,304 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.vaticle.typedb.common.collection;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+import static com.vaticle.typedb.common.collection.PrimitiveHashing.MAX_CAPACITY;
+import static com.vaticle.typedb.common.collection.PrimitiveHashing.MAX_SIZE;
+import static com.vaticle.typedb.common.collection.PrimitiveHashing.capacityFor;
+import static com.vaticle.typedb.common.collection.PrimitiveHashing.full;
+import static com.vaticle.typedb.common.collection.PrimitiveHashing.mix;
+import static com.vaticle.typedb.common.collection.PrimitiveHashing.threshold;
+
+/**
+ * An open-addressing hash map from primitive ints to primitive ints, with keys and values in parallel arrays and
+ * linear probing. The key 0 marks an empty slot, so an entry for 0 itself is held separately. Lookups of absent keys
+ * return the map's {@code missingValue}, which defaults to 0.
+ *
+ * Not thread-safe.
+ */
+public class IntIntHashMap {
+
+    private static final int EMPTY = 0;
+
+    private final int missingValue;
+    private int[] keys;
+    private int[] values;
+    private int mask;
+    private int threshold;
+    private int size;
+    private boolean containsEmptyKey;
+    private int emptyKeyValue;
+
+    public IntIntHashMap() {
+        this(0, 0);
+    }
+
+    public IntIntHashMap(int expectedSize) {
+        this(expectedSize, 0);
+    }
+
+    public IntIntHashMap(int expectedSize, int missingValue) {
+        this.missingValue = missingValue;
+        allocate(capacityFor(expectedSize));
+    }
+
+    public int missingValue() {
+        return missingValue;
+    }
+
+    public int size() {
+        return containsEmptyKey ? size + 1 : size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean containsKey(int key) {
+        if (key == EMPTY) return containsEmptyKey;
+        return find(key) >= 0;
+    }
+
+    public int get(int key) {
+        if (key == EMPTY) return containsEmptyKey ? emptyKeyValue : missingValue;
+        int index = find(key);
+        return index >= 0 ? values[index] : missingValue;
+    }
+
+    /**
+     * @return the previous value for the key, or the missing value if there was none
+     */
+    public int put(int key, int value) {
+        if (key == EMPTY) {
+            int previous = containsEmptyKey ? emptyKeyValue : missingValue;
+            containsEmptyKey = true;
+            emptyKeyValue = value;
+            return previous;
+        }
+        int index = mix(key) & mask;
+        int existing;
+        while ((existing = keys[index]) != EMPTY) {
+            if (existing == key) {
+                int previous = values[index];
+                values[index] = value;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+        if (size == MAX_SIZE) throw full();
+        keys[index] = key;
+        values[index] = value;
+        if (++size > threshold) grow();
+        return missingValue;
+    }
+
+    /**
+     * Add {@code delta} to the value for the key, treating an absent key as holding 0.
+     *
+     * @return the new value
+     */
+    public int addTo(int key, int delta) {
+        if (key == EMPTY) {
+            emptyKeyValue = (containsEmptyKey ? emptyKeyValue : 0) + delta;
+            containsEmptyKey = true;
+            return emptyKeyValue;
+        }
+        int index = find(key);
+        if (index >= 0) return values[index] += delta;
+        put(key, delta);
+        return delta;
+    }
+
+    /**
+     * @return the removed value, or the missing value if the key was absent
+     */
+    public int remove(int key) {
+        if (key == EMPTY) {
+            int previous = containsEmptyKey ? emptyKeyValue : missingValue;
+            containsEmptyKey = false;
+            return previous;
+        }
+        int index = find(key);
+        if (index < 0) return missingValue;
+        int previous = values[index];
+        shiftBack(index);
+        size--;
+        return previous;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        containsEmptyKey = false;
+    }
+
+    public void forEach(EntryConsumer consumer) {
+        if (containsEmptyKey) consumer.accept(EMPTY, emptyKeyValue);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) consumer.accept(keys[i], values[i]);
+        }
+    }
+
+    public Iterator iterator() {
+        return new Iterator();
+    }
+
+    private int find(int key) {
+        int[] keys = this.keys;
+        int index = mix(key) & mask;
+        int existing;
+        while ((existing = keys[index]) != EMPTY) {
+            if (existing == key) return index;
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = new int[capacity];
+        mask = capacity - 1;
+        threshold = threshold(capacity);
+    }
+
+    private void grow() {
+        if (keys.length < MAX_CAPACITY) rehash(keys.length << 1);
+        else threshold = MAX_SIZE;
+    }
+
+    private void rehash(int capacity) {
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            int key = oldKeys[i];
+            if (key == EMPTY) continue;
+            int index = mix(key) & mask;
+            while (keys[index] != EMPTY) index = (index + 1) & mask;
+            keys[index] = key;
+            values[index] = oldValues[i];
+        }
+    }
+
+    private void shiftBack(int gap) {
+        int index = (gap + 1) & mask;
+        int key;
+        while ((key = keys[index]) != EMPTY) {
+            int ideal = mix(key) & mask;
+            if (((index - ideal) & mask) >= ((index - gap) & mask)) {
+                keys[gap] = key;
+                values[gap] = values[index];
+                gap = index;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) return true;
+        if (obj == null || obj.getClass() != this.getClass()) return false;
+        IntIntHashMap that = (IntIntHashMap) obj;
+        if (this.size() != that.size() || this.containsEmptyKey != that.containsEmptyKey) return false;
+        if (containsEmptyKey && this.emptyKeyValue != that.emptyKeyValue) return false;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] == EMPTY) continue;
+            int index = that.find(keys[i]);
+            if (index < 0 || that.values[index] != values[i]) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = containsEmptyKey ? emptyKeyValue : 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) hash += keys[i] ^ values[i];
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        forEach((key, value) -> {
+            if (builder.length() > 1) builder.append(", ");
+            builder.append(key).append("=").append(value);
+        });
+        return builder.append("}").toString();
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer {
+
+        void accept(int key, int value);
+    }
+
+    /**
+     * A cursor over the entries of the map: call {@link #next()} to move to each entry in turn, then read it through
+     * {@link #key()} and {@link #value()}.
+     */
+    public class Iterator {
+
+        private int index;
+        private boolean emptyPending;
+        private int key;
+        private int value;
+
+        private Iterator() {
+            index = -1;
+            emptyPending = containsEmptyKey;
+            advance();
+        }
+
+        private void advance() {
+            do index++;
+            while (index < keys.length && keys[index] == EMPTY);
+        }
+
+        public boolean hasNext() {
+            return emptyPending || index < keys.length;
+        }
+
+        public void next() {
+            if (emptyPending) {
+                emptyPending = false;
+                key = EMPTY;
+                value = emptyKeyValue;
+                return;
+            }
+            if (index >= keys.length) throw new NoSuchElementException();
+            key = keys[index];
+            value = values[index];
+            advance();
+        }
+
+        public int key() {
+            return key;
+        }
+
+        public int value() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.vaticle.typedb.common.collection;
+
+/**
+ * A pair of a primitive int and a primitive long, for tuple keys that would otherwise box both fields of a
+ * {@link Pair}.
+ */
+public class IntLongPair {
+
+    private final int first;
+    private final long second;
+
+    public IntLongPair(int first, long second) {
+        this.first = first;
+        this.second = second;
+    }
+
+    public int first() {
+        return first;
+    }
+
+    public long second() {
+        return second;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("pair(%s, %s)", first, second);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) return true;
+        if (obj == null || this.getClass() != obj.getClass()) return false;
+        IntLongPair that = (IntLongPair) obj;
+        return this.first == that.first && this.second == that.second;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * first + Long.hashCode(second);
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.vaticle.typedb.common.collection;
+
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Canonicalises equal values to a single shared instance, so that tuples which repeat often can be held as flyweights
+ * and compared by reference. Thread-safe.
+ *
+ * A {@link #strong()} interner keeps every value it has seen until {@link #clear()}, and suits bounded domains. A
+ * {@link #weak()} interner lets a value be collected once nothing else refers to it, at the cost of a lock per call.
+ */
+public abstract class Interner<T> {
+
+    public static <T> Interner<T> strong() {
+        return new Strong<>();
+    }
+
+    public static <T> Interner<T> weak() {
+        return new Weak<>();
+    }
+
+    /**
+     * @return the canonical instance equal to {@code value}, which becomes canonical itself if there is none yet
+     */
+    public abstract T intern(T value);
+
+    public abstract int size();
+
+    public abstract void clear();
+
+    private static class Strong<T> extends Interner<T> {
+
+        private final ConcurrentHashMap<T, T> canonical = new ConcurrentHashMap<>();
+
+        @Override
+        public T intern(T value) {
+            T existing = canonical.get(value);
+            if (existing != null) return existing;
+            existing = canonical.putIfAbsent(value, value);
+            return existing != null ? existing : value;
+        }
+
+        @Override
+        public int size() {
+            return canonical.size();
+        }
+
+        @Override
+        public void clear() {
+            canonical.clear();
+        }
+    }
+
+    private static class Weak<T> extends Interner<T> {
+
+        private final Map<T, WeakReference<T>> canonical = new WeakHashMap<>();
+
+        @Override
+        public synchronized T intern(T value) {
+            WeakReference<T> reference = canonical.get(value);
+            T existing = reference != null ? reference.get() : null;
+            if (existing != null) return existing;
+            canonical.put(value, new WeakReference<>(value));
+            return value;
+        }
+
+        @Override
+        public synchronized int size() {
+            return canonical.size();
+        }
+
+        @Override
+        public synchronized void clear() {
+            canonical.clear();
+        }
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.vaticle.typedb.common.collection;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.LongConsumer;
+
+import static com.vaticle.typedb.common.collection.PrimitiveHashing.MAX_CAPACITY;
+import static com.vaticle.typedb.common.collection.PrimitiveHashing.MAX_SIZE;
+import static com.vaticle.typedb.common.collection.PrimitiveHashing.capacityFor;
+import static com.vaticle.typedb.common.collection.PrimitiveHashing.full;
+import static com.vaticle.typedb.common.collection.PrimitiveHashing.mix;
+import static com.vaticle.typedb.common.collection.PrimitiveHashing.threshold;
+
+/**
+ * An open-addressing hash set of primitive longs, stored unboxed in a single array with linear probing. The value 0
+ * marks an empty slot, so membership of 0 itself is tracked separately.
+ *
+ * Not thread-safe. A set may be made unmodifiable, as those from {@link Collections#longSet} are, after which any update
+ * throws {@link UnsupportedOperationException}.
+ */
+public class LongHashSet {
+
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private int mask;
+    private int threshold;
+    private int size;
+    private boolean containsEmpty;
+    private boolean unmodifiable;
+
+    public LongHashSet() {
+        this(0);
+    }
+
+    public LongHashSet(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public static LongHashSet of(long... items) {
+        LongHashSet set = new LongHashSet(items.length);
+        for (long item : items) set.add(item);
+        return set;
+    }
+
+    LongHashSet unmodifiable() {
+        unmodifiable = true;
+        return this;
+    }
+
+    public int size() {
+        return containsEmpty ? size + 1 : size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean contains(long key) {
+        if (key == EMPTY) return containsEmpty;
+        long[] keys = this.keys;
+        int index = mix(key) & mask;
+        long existing;
+        while ((existing = keys[index]) != EMPTY) {
+            if (existing == key) return true;
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    /**
+     * @return true if the key was not already present
+     */
+    public boolean add(long key) {
+        checkModifiable();
+        if (key == EMPTY) {
+            if (containsEmpty) return false;
+            containsEmpty = true;
+            return true;
+        }
+        int index = mix(key) & mask;
+        long existing;
+        while ((existing = keys[index]) != EMPTY) {
+            if (existing == key) return false;
+            index = (index + 1) & mask;
+        }
+        if (size == MAX_SIZE) throw full();
+        keys[index] = key;
+        if (++size > threshold) grow();
+        return true;
+    }
+
+    public void addAll(LongHashSet other) {
+        checkModifiable();
+        if (other.containsEmpty) containsEmpty = true;
+        for (long key : other.keys) {
+            if (key != EMPTY) add(key);
+        }
+    }
+
+    /**
+     * @return true if the key was present
+     */
+    public boolean remove(long key) {
+        checkModifiable();
+        if (key == EMPTY) {
+            boolean removed = containsEmpty;
+            containsEmpty = false;
+            return removed;
+        }
+        int index = mix(key) & mask;
+        long existing;
+        while ((existing = keys[index]) != EMPTY) {
+            if (existing == key) {
+                shiftBack(index);
+                size--;
+                return true;
+            }
+            index = (index + 1) & mask;
+        }
+        return false;
+    }
+
+    public void clear() {
+        checkModifiable();
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+        containsEmpty = false;
+    }
+
+    public void forEach(LongConsumer consumer) {
+        if (containsEmpty) consumer.accept(EMPTY);
+        for (long key : keys) {
+            if (key != EMPTY) consumer.accept(key);
+        }
+    }
+
+    public Iterator iterator() {
+        return new Iterator();
+    }
+
+    public long[] toArray() {
+        long[] array = new long[size()];
+        int i = 0;
+        if (containsEmpty) array[i++] = EMPTY;
+        for (long key : keys) {
+            if (key != EMPTY) array[i++] = key;
+        }
+        return array;
+    }
+
+    private void checkModifiable() {
+        if (unmodifiable) throw new UnsupportedOperationException();
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        mask = capacity - 1;
+        threshold = threshold(capacity);
+    }
+
+    private void grow() {
+        if (keys.length < MAX_CAPACITY) rehash(keys.length << 1);
+        else threshold = MAX_SIZE;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        allocate(capacity);
+        for (long key : oldKeys) {
+            if (key == EMPTY) continue;
+            int index = mix(key) & mask;
+            while (keys[index] != EMPTY) index = (index + 1) & mask;
+            keys[index] = key;
+        }
+    }
+
+    /**
+     * Close the gap left at {@code gap} by moving back any later entry of the probe run that may legally occupy it,
+     * so that lookups never need tombstones.
+     */
+    private void shiftBack(int gap) {
+        int index = (gap + 1) & mask;
+        long key;
+        while ((key = keys[index]) != EMPTY) {
+            int ideal = mix(key) & mask;
+            if (((index - ideal) & mask) >= ((index - gap) & mask)) {
+                keys[gap] = key;
+                gap = index;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) return true;
+        if (obj == null || obj.getClass() != this.getClass()) return false;
+        LongHashSet that = (LongHashSet) obj;
+        if (this.size() != that.size() || this.containsEmpty != that.containsEmpty) return false;
+        for (long key : keys) {
+            if (key != EMPTY && !that.contains(key)) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        for (long key : keys) {
+            if (key != EMPTY) hash += Long.hashCode(key);
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("[");
+        forEach(key -> {
+            if (builder.length() > 1) builder.append(", ");
+            builder.append(key);
+        });
+        return builder.append("]").toString();
+    }
+
+    public class Iterator implements PrimitiveIterator.OfLong {
+
+        private int index;
+        private boolean emptyPending;
+
+        private Iterator() {
+            index = -1;
+            emptyPending = containsEmpty;
+            advance();
+        }
+
+        private void advance() {
+            do index++;
+            while (index < keys.length && keys[index] == EMPTY);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return emptyPending || index < keys.length;
+        }
+
+        @Override
+        public long nextLong() {
+            if (emptyPending) {
+                emptyPending = false;
+                return EMPTY;
+            }
+            if (index >= keys.length) throw new NoSuchElementException();
+            long key = keys[index];
+            advance();
+            return key;
+        }
+    }
+}
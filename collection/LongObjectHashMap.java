@@ -0,0 +1,296 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.vaticle.typedb.common.collection;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.LongFunction;
+
+import static com.vaticle.typedb.common.collection.PrimitiveHashing.MAX_CAPACITY;
+import static com.vaticle.typedb.common.collection.PrimitiveHashing.MAX_SIZE;
+import static com.vaticle.typedb.common.collection.PrimitiveHashing.capacityFor;
+import static com.vaticle.typedb.common.collection.PrimitiveHashing.full;
+import static com.vaticle.typedb.common.collection.PrimitiveHashing.mix;
+import static com.vaticle.typedb.common.collection.PrimitiveHashing.threshold;
+
+/**
+ * An open-addressing hash map from primitive longs to objects, with keys and values in parallel arrays and linear
+ * probing. The key 0 marks an empty slot, so an entry for 0 itself is held separately. Null values are not permitted,
+ * so {@link #get(long)} returning null always means the key is absent.
+ *
+ * Not thread-safe.
+ */
+public class LongObjectHashMap<V> {
+
+    private static final long EMPTY = 0L;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int threshold;
+    private int size;
+    private V emptyKeyValue;
+
+    public LongObjectHashMap() {
+        this(0);
+    }
+
+    public LongObjectHashMap(int expectedSize) {
+        allocate(capacityFor(expectedSize));
+    }
+
+    public int size() {
+        return emptyKeyValue != null ? size + 1 : size;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        if (key == EMPTY) return emptyKeyValue;
+        long[] keys = this.keys;
+        int index = mix(key) & mask;
+        long existing;
+        while ((existing = keys[index]) != EMPTY) {
+            if (existing == key) return (V) values[index];
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    public V getOrDefault(long key, V defaultValue) {
+        V value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    /**
+     * @return the previous value for the key, or null if there was none
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        Objects.requireNonNull(value);
+        if (key == EMPTY) {
+            V previous = emptyKeyValue;
+            emptyKeyValue = value;
+            return previous;
+        }
+        int index = mix(key) & mask;
+        long existing;
+        while ((existing = keys[index]) != EMPTY) {
+            if (existing == key) {
+                V previous = (V) values[index];
+                values[index] = value;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+        if (size == MAX_SIZE) throw full();
+        keys[index] = key;
+        values[index] = value;
+        if (++size > threshold) grow();
+        return null;
+    }
+
+    public V computeIfAbsent(long key, LongFunction<? extends V> function) {
+        V value = get(key);
+        if (value == null) {
+            value = function.apply(key);
+            if (value != null) put(key, value);
+        }
+        return value;
+    }
+
+    /**
+     * @return the removed value, or null if the key was absent
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        if (key == EMPTY) {
+            V previous = emptyKeyValue;
+            emptyKeyValue = null;
+            return previous;
+        }
+        int index = mix(key) & mask;
+        long existing;
+        while ((existing = keys[index]) != EMPTY) {
+            if (existing == key) {
+                V previous = (V) values[index];
+                shiftBack(index);
+                size--;
+                return previous;
+            }
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(values, null);
+        size = 0;
+        emptyKeyValue = null;
+    }
+
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<? super V> consumer) {
+        if (emptyKeyValue != null) consumer.accept(EMPTY, emptyKeyValue);
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) consumer.accept(keys[i], (V) values[i]);
+        }
+    }
+
+    public Iterator iterator() {
+        return new Iterator();
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        threshold = threshold(capacity);
+    }
+
+    private void grow() {
+        if (keys.length < MAX_CAPACITY) rehash(keys.length << 1);
+        else threshold = MAX_SIZE;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            long key = oldKeys[i];
+            if (key == EMPTY) continue;
+            int index = mix(key) & mask;
+            while (keys[index] != EMPTY) index = (index + 1) & mask;
+            keys[index] = key;
+            values[index] = oldValues[i];
+        }
+    }
+
+    private void shiftBack(int gap) {
+        int index = (gap + 1) & mask;
+        long key;
+        while ((key = keys[index]) != EMPTY) {
+            int ideal = mix(key) & mask;
+            if (((index - ideal) & mask) >= ((index - gap) & mask)) {
+                keys[gap] = key;
+                values[gap] = values[index];
+                gap = index;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[gap] = EMPTY;
+        values[gap] = null;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (obj == this) return true;
+        if (obj == null || obj.getClass() != this.getClass()) return false;
+        LongObjectHashMap<?> that = (LongObjectHashMap<?>) obj;
+        if (this.size() != that.size() || !Objects.equals(this.emptyKeyValue, that.emptyKeyValue)) return false;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY && !values[i].equals(that.get(keys[i]))) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = emptyKeyValue != null ? emptyKeyValue.hashCode() : 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) hash += Long.hashCode(keys[i]) ^ values[i].hashCode();
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("{");
+        forEach((key, value) -> {
+            if (builder.length() > 1) builder.append(", ");
+            builder.append(key).append("=").append(value);
+        });
+        return builder.append("}").toString();
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+
+        void accept(long key, V value);
+    }
+
+    /**
+     * A cursor over the entries of the map: call {@link #next()} to move to each entry in turn, then read it through
+     * {@link #key()} and {@link #value()}.
+     */
+    public class Iterator {
+
+        private int index;
+        private boolean emptyPending;
+        private long key;
+        private V value;
+
+        private Iterator() {
+            index = -1;
+            emptyPending = emptyKeyValue != null;
+            advance();
+        }
+
+        private void advance() {
+            do index++;
+            while (index < keys.length && keys[index] == EMPTY);
+        }
+
+        public boolean hasNext() {
+            return emptyPending || index < keys.length;
+        }
+
+        @SuppressWarnings("unchecked")
+        public void next() {
+            if (emptyPending) {
+                emptyPending = false;
+                key = EMPTY;
+                value = emptyKeyValue;
+                return;
+            }
+            if (index >= keys.length) throw new NoSuchElementException();
+            key = keys[index];
+            value = (V) values[index];
+            advance();
+        }
+
+        public long key() {
+            return key;
+        }
+
+        public V value() {
+            return value;
+        }
+    }
+}
@@ -24,12 +24,11 @@ public class Pair<FIRST, SECOND> {
 
     private final FIRST first;
     private final SECOND second;
-    private final int hash;
+    private int hash;
 
     public Pair(FIRST first, SECOND second) {
         this.first = first;
         this.second = second;
-        this.hash = Objects.hash(this.first, this.second);
     }
 
     public FIRST first() {
@@ -55,6 +54,12 @@ public class Pair<FIRST, SECOND> {
 
     @Override
     public int hashCode() {
-        return hash;
+        // computed on first use and cached, racily but safely, as String does; equal to Objects.hash(first, second)
+        int h = hash;
+        if (h == 0) {
+            h = 31 * (31 + Objects.hashCode(first)) + Objects.hashCode(second);
+            hash = h;
+        }
+        return h;
     }
 }
\ No newline at end of file
@@ -17,15 +17,22 @@
 
 package com.vaticle.typedb.common.collection;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
-import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.RandomAccess;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import static com.vaticle.typedb.common.collection.Collections.list;
 import static java.util.Collections.emptyIterator;
@@ -33,6 +40,9 @@ import static java.util.Collections.singletonList;
 
 public class Permutations {
 
+    // 20! is the largest factorial that fits in a long, and so the largest permutation space we can rank
+    private static final int MAX_RANKABLE_ITEMS = 20;
+
     /**
      * We implement the C++ STL next_permutation method of lazily generating permutations
      */
@@ -42,74 +52,394 @@ public class Permutations {
         else return new PermutationIterator<>(items);
     }
 
+    /**
+     * Stream the permutations of the items, in the same order as {@link #permutations(Set)}. A parallel stream splits
+     * the permutations by rank, and each half unranks its own starting permutation, so no coordination is needed
+     * between the halves.
+     */
+    public static <T> Stream<List<T>> stream(Set<T> items, boolean parallel) {
+        return StreamSupport.stream(spliterator(items), parallel);
+    }
+
+    public static <T> Spliterator<List<T>> spliterator(Set<T> items) {
+        if (items.isEmpty()) return Spliterators.emptySpliterator();
+        else if (items.size() > MAX_RANKABLE_ITEMS) {
+            return Spliterators.spliteratorUnknownSize(permutations(items), Spliterator.ORDERED | Spliterator.NONNULL);
+        }
+        return new PermutationSpliterator<>(sorted(items), 0, factorial(items.size()));
+    }
+
+    /**
+     * Enumerate the permutations of the items without allocating per permutation: each permutation is written into
+     * {@code buffer}, which must be at least as long as the number of items, and handed to {@code consumer}, which
+     * must copy anything it wants to keep before returning.
+     */
+    public static <T> void forEachPermutation(Set<T> items, T[] buffer, Consumer<T[]> consumer) {
+        if (buffer.length < items.size()) {
+            throw new IllegalArgumentException("Permutation buffer is shorter than the number of items.");
+        }
+        if (items.isEmpty()) return;
+        Object[] sortedItems = sorted(items);
+        int[] itemKeys = identity(sortedItems.length);
+        do {
+            write(sortedItems, itemKeys, buffer);
+            consumer.accept(buffer);
+        } while (nextPermutation(itemKeys));
+    }
+
+    /**
+     * Enumerate, in the same order as {@link #permutations(Set)}, only the permutations whose every prefix is valid.
+     * As soon as a prefix is rejected, no permutation that begins with it is generated. The prefix passed to
+     * {@code valid} is a view that is only valid during the call.
+     */
+    public static <T> void forEachValid(Set<T> items, Predicate<List<T>> valid, Consumer<List<T>> consumer) {
+        if (items.isEmpty()) return;
+        new PrunedSearch<T>(sorted(items), Long.MAX_VALUE) {
+            @Override
+            double cost(Prefix<T> prefix) {
+                return valid.test(prefix) ? 0 : Double.POSITIVE_INFINITY;
+            }
+
+            @Override
+            double complete(Prefix<T> ordering, double cost) {
+                consumer.accept(new ArrayList<>(ordering));
+                // keep searching: a bound of infinity never prunes valid prefixes
+                return Double.POSITIVE_INFINITY;
+            }
+        }.run();
+    }
+
+    /**
+     * Find the cheapest permutation by branch and bound. {@code cost} is evaluated on each prefix as it is extended,
+     * and must never decrease as a prefix grows; it returns {@link Double#POSITIVE_INFINITY} to reject a prefix.
+     * A whole subtree is skipped as soon as its prefix is rejected or costs at least as much as the best complete
+     * permutation found so far. The prefix passed to {@code cost} is a view that is only valid during the call.
+     *
+     * @param budget the maximum number of prefixes to evaluate; once it runs out, the best permutation found so far
+     *               is returned, and the result is marked as incomplete
+     */
+    public static <T> SearchResult<T> cheapest(Set<T> items, PrefixCost<T> cost, long budget) {
+        if (items.isEmpty()) return new SearchResult<>(null, Double.POSITIVE_INFINITY, true);
+        CheapestSearch<T> search = new CheapestSearch<>(sorted(items), cost, budget);
+        boolean complete = search.run();
+        return new SearchResult<>(search.best, search.bestCost, complete);
+    }
+
+    @FunctionalInterface
+    public interface PrefixCost<T> {
+
+        double cost(List<T> prefix);
+    }
+
+    public static class SearchResult<T> {
+
+        private final List<T> ordering;
+        private final double cost;
+        private final boolean complete;
+
+        private SearchResult(List<T> ordering, double cost, boolean complete) {
+            this.ordering = ordering;
+            this.cost = cost;
+            this.complete = complete;
+        }
+
+        public Optional<List<T>> ordering() {
+            return Optional.ofNullable(ordering);
+        }
+
+        public double cost() {
+            return cost;
+        }
+
+        /**
+         * @return true if the search space was exhausted, so the ordering is the cheapest there is; false if the
+         * budget ran out first
+         */
+        public boolean isComplete() {
+            return complete;
+        }
+    }
+
+    public static long factorial(int n) {
+        if (n > MAX_RANKABLE_ITEMS) throw new ArithmeticException(n + "! does not fit in a long.");
+        long factorial = 1;
+        for (int i = 2; i <= n; i++) factorial *= i;
+        return factorial;
+    }
+
+    /**
+     * Write the permutation of [0, keys.length) with the given lexicographic rank into {@code keys}, by decoding the
+     * rank's Lehmer code: the i-th factorial-base digit selects which of the remaining indices comes i-th.
+     */
+    public static void unrank(long rank, int[] keys) {
+        int n = keys.length;
+        int[] remaining = identity(n);
+        for (int i = 0; i < n; i++) {
+            long radix = factorial(n - 1 - i);
+            int digit = (int) (rank / radix);
+            rank %= radix;
+            keys[i] = remaining[digit];
+            System.arraycopy(remaining, digit + 1, remaining, digit, n - i - digit - 1);
+        }
+    }
+
+    /**
+     * Rearrange {@code keys} into the lexicographically next permutation.
+     *
+     * @return false, leaving {@code keys} untouched, if they were already in the last permutation
+     */
+    static boolean nextPermutation(int[] keys) {
+        // find the longest tail that is decreasing
+        int tailIndex = keys.length - 1;
+        while (tailIndex > 0 && keys[tailIndex] < keys[tailIndex - 1]) tailIndex--;
+        if (tailIndex == 0) return false;
+        // swap the previous element with the smallest element larger than it in the descending tail
+        for (int swap = keys.length - 1; swap >= tailIndex; swap--) {
+            if (keys[swap] > keys[tailIndex - 1]) {
+                swap(keys, swap, tailIndex - 1);
+                break;
+            }
+        }
+        // reverse the tail to get it back into increasing order
+        for (int i = tailIndex, j = keys.length - 1; i < j; i++, j--) {
+            swap(keys, i, j);
+        }
+        return true;
+    }
+
+    private static void swap(int[] arr, int i, int j) {
+        int tmp = arr[i];
+        arr[i] = arr[j];
+        arr[j] = tmp;
+    }
+
+    private static <T> Object[] sorted(Set<T> items) {
+        // make the initial ordering mostly deterministic
+        return items.stream().sorted(Comparator.comparing(Object::hashCode)).toArray();
+    }
+
+    private static int[] identity(int n) {
+        int[] keys = new int[n];
+        for (int i = 0; i < n; i++) keys[i] = i;
+        return keys;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void write(Object[] items, int[] itemKeys, T[] buffer) {
+        for (int i = 0; i < itemKeys.length; i++) buffer[i] = (T) items[itemKeys[i]];
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> List<T> toList(Object[] items, int[] itemKeys) {
+        // convert the keys back into the items
+        List<T> permutation = new ArrayList<>(itemKeys.length);
+        for (int index : itemKeys) {
+            permutation.add((T) items[index]);
+        }
+        return permutation;
+    }
+
+    /**
+     * Depth-first search over permutations in lexicographic order, building each permutation in place in a single
+     * buffer and abandoning a branch as soon as its prefix costs at least the current bound.
+     */
+    private abstract static class PrunedSearch<T> {
+
+        private final Object[] items;
+        private final Prefix<T> prefix;
+        private final boolean[] used;
+        private long budget;
+        private double bound;
+
+        private PrunedSearch(Object[] items, long budget) {
+            this.items = items;
+            this.prefix = new Prefix<>(new Object[items.length]);
+            this.used = new boolean[items.length];
+            this.budget = budget;
+            this.bound = Double.POSITIVE_INFINITY;
+        }
+
+        abstract double cost(Prefix<T> prefix);
+
+        /**
+         * @return the new bound: only prefixes that cost less than it are explored further
+         */
+        abstract double complete(Prefix<T> ordering, double cost);
+
+        /**
+         * @return true if the search ran to completion without exhausting its budget
+         */
+        boolean run() {
+            return extend(0);
+        }
+
+        private boolean extend(int depth) {
+            for (int i = 0; i < items.length; i++) {
+                if (used[i]) continue;
+                if (budget-- <= 0) return false;
+                prefix.place(depth, items[i]);
+                double cost = cost(prefix);
+                if (!(cost < bound)) continue;
+                if (depth + 1 == items.length) {
+                    bound = complete(prefix, cost);
+                    continue;
+                }
+                used[i] = true;
+                boolean finished = extend(depth + 1);
+                used[i] = false;
+                if (!finished) return false;
+            }
+            return true;
+        }
+    }
+
+    private static class CheapestSearch<T> extends PrunedSearch<T> {
+
+        private final PrefixCost<T> cost;
+        private List<T> best;
+        private double bestCost;
+
+        private CheapestSearch(Object[] items, PrefixCost<T> cost, long budget) {
+            super(items, budget);
+            this.cost = cost;
+            this.best = null;
+            this.bestCost = Double.POSITIVE_INFINITY;
+        }
+
+        @Override
+        double cost(Prefix<T> prefix) {
+            return cost.cost(prefix);
+        }
+
+        @Override
+        double complete(Prefix<T> ordering, double orderingCost) {
+            best = new ArrayList<>(ordering);
+            bestCost = orderingCost;
+            return orderingCost;
+        }
+    }
+
+    /**
+     * A read-only list view over the first {@code size} elements of a reused buffer.
+     */
+    private static class Prefix<T> extends AbstractList<T> implements RandomAccess {
+
+        private final Object[] buffer;
+        private int size;
+
+        private Prefix(Object[] buffer) {
+            this.buffer = buffer;
+            this.size = 0;
+        }
+
+        private void place(int index, Object item) {
+            buffer[index] = item;
+            size = index + 1;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public T get(int index) {
+            if (index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+            return (T) buffer[index];
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+
+        @Override
+        public Object[] toArray() {
+            return Arrays.copyOf(buffer, size);
+        }
+    }
+
     private static class PermutationIterator<T> implements Iterator<List<T>> {
 
-        private final Map<Integer, T> mapping;
+        private final Object[] items;
         private final int[] itemKeys;
         private boolean hasNext;
 
         private PermutationIterator(Set<T> items) {
             // assign a comparable ordering over the items
-            mapping = new HashMap<>();
-            // make the initial ordering mostly deterministic
-            List<T> sortedItems = items.stream().sorted(Comparator.comparing(Object::hashCode)).collect(Collectors.toList());
-            itemKeys = new int[sortedItems.size()];
-            for (int i = 0; i < sortedItems.size(); i++) {
-                mapping.put(i, sortedItems.get(i));
-                itemKeys[i] = i;
-            }
+            this.items = sorted(items);
+            this.itemKeys = identity(this.items.length);
             hasNext = true;
         }
 
         @Override
         public List<T> next() {
             if (!hasNext()) throw new NoSuchElementException();
-            // convert the keys back into the items
-            List<T> permutation = new ArrayList<>(itemKeys.length);
-            for (int index : itemKeys) {
-                permutation.add(mapping.get(index));
-            }
             hasNext = false;
-            return permutation;
+            return toList(items, itemKeys);
         }
 
         @Override
         public boolean hasNext() {
             if (hasNext) return true;
-            // find the longest tail that is decreasing
-            int tailIndex = itemKeys.length - 1;
-            while (itemKeys[tailIndex] < itemKeys[tailIndex - 1]) {
-                tailIndex--;
-                if (tailIndex == 0) return false;
-            }
-            swapPreviousWithLarger(tailIndex);
-            reverseTail(tailIndex);
             // itemKeys contains the lexicographical next permutation
-            hasNext = true;
-            return true;
+            hasNext = nextPermutation(itemKeys);
+            return hasNext;
         }
-        // swap the previous element with the smallest element larger than it in the descending tail
+    }
 
-        private void swapPreviousWithLarger(int tailIndex) {
-            for (int swap = itemKeys.length - 1; swap >= tailIndex; swap--) {
-                if (itemKeys[swap] > itemKeys[tailIndex - 1]) {
-                    swap(itemKeys, swap, tailIndex - 1);
-                    break;
-                }
-            }
+    /**
+     * Covers the permutations with ranks in [rank, end). The first permutation is unranked lazily, so that splitting
+     * costs nothing until a half is actually traversed.
+     */
+    private static class PermutationSpliterator<T> implements Spliterator<List<T>> {
+
+        private static final int MIN_SPLIT_SIZE = 2;
+
+        private final Object[] items;
+        private final int[] itemKeys;
+        private long rank;
+        private long end;
+        private boolean positioned;
+
+        private PermutationSpliterator(Object[] items, long rank, long end) {
+            this.items = items;
+            this.itemKeys = new int[items.length];
+            this.rank = rank;
+            this.end = end;
+            this.positioned = false;
         }
-        // reverse the tail to get it back into increasing order
 
-        private void reverseTail(int tailIndex) {
-            for (int i = tailIndex, j = itemKeys.length - 1; i < j; i++, j--) {
-                swap(itemKeys, i, j);
+        @Override
+        public boolean tryAdvance(Consumer<? super List<T>> action) {
+            if (rank >= end) return false;
+            if (!positioned) {
+                unrank(rank, itemKeys);
+                positioned = true;
+            } else {
+                nextPermutation(itemKeys);
             }
+            rank++;
+            action.accept(toList(items, itemKeys));
+            return true;
+        }
+
+        @Override
+        public Spliterator<List<T>> trySplit() {
+            long remaining = end - rank;
+            if (remaining < MIN_SPLIT_SIZE) return null;
+            long mid = rank + remaining / 2;
+            // the prefix is handed off, and this spliterator continues from the middle
+            Spliterator<List<T>> prefix = new PermutationSpliterator<>(items, rank, mid);
+            rank = mid;
+            positioned = false;
+            return prefix;
         }
 
-        private void swap(int[] arr, int i, int j) {
-            int tmp = arr[i];
-            arr[i] = arr[j];
-            arr[j] = tmp;
+        @Override
+        public long estimateSize() {
+            return end - rank;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE | DISTINCT;
         }
     }
 }
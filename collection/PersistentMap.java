@@ -0,0 +1,389 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.vaticle.typedb.common.collection;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * An immutable map whose updates return a new map sharing structure with the original, implemented as a hash array
+ * mapped trie (HAMT). Each level of the trie consumes 5 bits of a key's hash and holds only its occupied slots, indexed
+ * by the population count of a 32-bit bitmap, so an update copies one small array per level, and at most 7 levels
+ * deep. Keys whose hashes collide in full share a collision node. Null keys and values are permitted.
+ */
+public class PersistentMap<K, V> extends AbstractMap<K, V> {
+
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(null, 0);
+    private static final Object NOT_FOUND = new Object();
+
+    private final Node root;
+    private final int size;
+    private Set<Entry<K, V>> entrySet;
+
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <K, V> PersistentMap<K, V> of(Map<? extends K, ? extends V> map) {
+        if (map instanceof PersistentMap) return (PersistentMap<K, V>) map;
+        return PersistentMap.<K, V>empty().plusAll(map);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return root != null && root.find(0, hash(key), key, NOT_FOUND) != NOT_FOUND;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        return root == null ? null : (V) root.find(0, hash(key), key, null);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(Object key, V defaultValue) {
+        return root == null ? defaultValue : (V) root.find(0, hash(key), key, defaultValue);
+    }
+
+    /**
+     * @return a map with {@code key} mapped to {@code value}, or this map if it already held that mapping
+     */
+    public PersistentMap<K, V> plus(K key, V value) {
+        boolean[] added = new boolean[1];
+        Node newRoot = (root == null ? BitmapNode.EMPTY : root).put(0, hash(key), key, value, added);
+        if (newRoot == root) return this;
+        return new PersistentMap<>(newRoot, added[0] ? size + 1 : size);
+    }
+
+    public PersistentMap<K, V> plusAll(Map<? extends K, ? extends V> map) {
+        PersistentMap<K, V> result = this;
+        for (Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            result = result.plus(entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * @return a map without {@code key}, or this map if it did not contain the key
+     */
+    public PersistentMap<K, V> minus(Object key) {
+        if (root == null) return this;
+        Node newRoot = root.remove(0, hash(key), key);
+        if (newRoot == root) return this;
+        return new PersistentMap<>(newRoot, size - 1);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        if (root != null) root.forEach((BiConsumer<Object, Object>) action);
+    }
+
+    @Override
+    public Set<Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new AbstractSet<Entry<K, V>>() {
+                @Override
+                public Iterator<Entry<K, V>> iterator() {
+                    return new EntryIterator<>(root);
+                }
+
+                @Override
+                public int size() {
+                    return size;
+                }
+            };
+        }
+        return entrySet;
+    }
+
+    Iterator<K> keyIterator() {
+        EntryIterator<K, V> entries = new EntryIterator<>(root);
+        return new Iterator<K>() {
+            @Override
+            public boolean hasNext() {
+                return entries.hasNext();
+            }
+
+            @Override
+            public K next() {
+                return entries.nextKey();
+            }
+        };
+    }
+
+    private static int hash(Object key) {
+        int h = Objects.hashCode(key);
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Both kinds of node keep their contents in a flat array of alternating keys and values. In a bitmap node, a
+     * slot's key may instead be a child node, with a null value.
+     */
+    private static abstract class Node {
+
+        final Object[] array;
+
+        Node(Object[] array) {
+            this.array = array;
+        }
+
+        abstract Object find(int shift, int hash, Object key, Object notFound);
+
+        abstract Node put(int shift, int hash, Object key, Object value, boolean[] added);
+
+        /**
+         * @return the node without the key, this node if it did not contain the key, or null if it is left empty
+         */
+        abstract Node remove(int shift, int hash, Object key);
+
+        void forEach(BiConsumer<Object, Object> action) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (array[i] instanceof Node) ((Node) array[i]).forEach(action);
+                else action.accept(array[i], array[i + 1]);
+            }
+        }
+    }
+
+    private static class BitmapNode extends Node {
+
+        private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+
+        private BitmapNode(int bitmap, Object[] array) {
+            super(array);
+            this.bitmap = bitmap;
+        }
+
+        private int index(int bit) {
+            return 2 * Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key, Object notFound) {
+            int bit = 1 << ((hash >>> shift) & 31);
+            if ((bitmap & bit) == 0) return notFound;
+            int index = index(bit);
+            Object existing = array[index];
+            if (existing instanceof Node) return ((Node) existing).find(shift + 5, hash, key, notFound);
+            return Objects.equals(existing, key) ? array[index + 1] : notFound;
+        }
+
+        @Override
+        Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = 1 << ((hash >>> shift) & 31);
+            int index = index(bit);
+            if ((bitmap & bit) == 0) {
+                Object[] newArray = new Object[array.length + 2];
+                System.arraycopy(array, 0, newArray, 0, index);
+                newArray[index] = key;
+                newArray[index + 1] = value;
+                System.arraycopy(array, index, newArray, index + 2, array.length - index);
+                added[0] = true;
+                return new BitmapNode(bitmap | bit, newArray);
+            }
+            Object existingKey = array[index];
+            Object existingValue = array[index + 1];
+            if (existingKey instanceof Node) {
+                Node child = ((Node) existingKey).put(shift + 5, hash, key, value, added);
+                return child == existingKey ? this : with(index, child, null);
+            } else if (Objects.equals(existingKey, key)) {
+                return existingValue == value ? this : with(index, key, value);
+            } else {
+                added[0] = true;
+                return with(index, split(shift + 5, existingKey, existingValue, hash, key, value), null);
+            }
+        }
+
+        @Override
+        Node remove(int shift, int hash, Object key) {
+            int bit = 1 << ((hash >>> shift) & 31);
+            if ((bitmap & bit) == 0) return this;
+            int index = index(bit);
+            Object existingKey = array[index];
+            if (existingKey instanceof Node) {
+                Node child = ((Node) existingKey).remove(shift + 5, hash, key);
+                if (child == existingKey) return this;
+                else if (child != null) return with(index, child, null);
+            } else if (!Objects.equals(existingKey, key)) {
+                return this;
+            }
+            if (bitmap == bit) return null;
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, index);
+            System.arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+            return new BitmapNode(bitmap ^ bit, newArray);
+        }
+
+        private BitmapNode with(int index, Object key, Object value) {
+            Object[] newArray = array.clone();
+            newArray[index] = key;
+            newArray[index + 1] = value;
+            return new BitmapNode(bitmap, newArray);
+        }
+
+        private static Node split(int shift, Object key1, Object value1, int hash2, Object key2, Object value2) {
+            int hash1 = hash(key1);
+            if (hash1 == hash2) return new CollisionNode(hash1, new Object[]{key1, value1, key2, value2});
+            boolean[] added = new boolean[1];
+            return EMPTY.put(shift, hash1, key1, value1, added).put(shift, hash2, key2, value2, added);
+        }
+    }
+
+    private static class CollisionNode extends Node {
+
+        private final int hash;
+
+        private CollisionNode(int hash, Object[] array) {
+            super(array);
+            this.hash = hash;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (Objects.equals(array[i], key)) return i;
+            }
+            return -1;
+        }
+
+        @Override
+        Object find(int shift, int hash, Object key, Object notFound) {
+            int index = hash == this.hash ? indexOf(key) : -1;
+            return index >= 0 ? array[index + 1] : notFound;
+        }
+
+        @Override
+        Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                Object[] wrapper = new Object[]{this, null};
+                return new BitmapNode(1 << ((this.hash >>> shift) & 31), wrapper).put(shift, hash, key, value, added);
+            }
+            int index = indexOf(key);
+            if (index >= 0) {
+                if (array[index + 1] == value) return this;
+                Object[] newArray = array.clone();
+                newArray[index + 1] = value;
+                return new CollisionNode(hash, newArray);
+            }
+            Object[] newArray = Arrays.copyOf(array, array.length + 2);
+            newArray[array.length] = key;
+            newArray[array.length + 1] = value;
+            added[0] = true;
+            return new CollisionNode(hash, newArray);
+        }
+
+        @Override
+        Node remove(int shift, int hash, Object key) {
+            int index = hash == this.hash ? indexOf(key) : -1;
+            if (index < 0) return this;
+            if (array.length == 2) return null;
+            Object[] newArray = new Object[array.length - 2];
+            System.arraycopy(array, 0, newArray, 0, index);
+            System.arraycopy(array, index + 2, newArray, index, array.length - index - 2);
+            return new CollisionNode(hash, newArray);
+        }
+    }
+
+    /**
+     * A depth-first walk over the trie, keeping the array and position at each level on an explicit stack. The trie is
+     * at most 7 bitmap levels deep, plus a collision level.
+     */
+    private static class EntryIterator<K, V> implements Iterator<Entry<K, V>> {
+
+        private final Object[][] arrays = new Object[8][];
+        private final int[] positions = new int[8];
+        private int depth;
+        private boolean hasNext;
+        private Object nextKey;
+        private Object nextValue;
+
+        private EntryIterator(Node root) {
+            if (root != null) arrays[0] = root.array;
+            else depth = -1;
+            advance();
+        }
+
+        private void advance() {
+            while (depth >= 0) {
+                Object[] array = arrays[depth];
+                int position = positions[depth];
+                if (position >= array.length) {
+                    depth--;
+                    continue;
+                }
+                positions[depth] = position + 2;
+                Object key = array[position];
+                if (key instanceof Node) {
+                    arrays[++depth] = ((Node) key).array;
+                    positions[depth] = 0;
+                } else {
+                    nextKey = key;
+                    nextValue = array[position + 1];
+                    hasNext = true;
+                    return;
+                }
+            }
+            hasNext = false;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return hasNext;
+        }
+
+        @SuppressWarnings("unchecked")
+        private K nextKey() {
+            if (!hasNext) throw new NoSuchElementException();
+            K key = (K) nextKey;
+            advance();
+            return key;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Entry<K, V> next() {
+            if (!hasNext) throw new NoSuchElementException();
+            Entry<K, V> entry = new SimpleImmutableEntry<>((K) nextKey, (V) nextValue);
+            advance();
+            return entry;
+        }
+    }
+}
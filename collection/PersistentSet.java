@@ -0,0 +1,86 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.vaticle.typedb.common.collection;
+
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+
+/**
+ * An immutable set whose updates return a new set sharing structure with the original, backed by a
+ * {@link PersistentMap} from each element to itself.
+ */
+public class PersistentSet<T> extends AbstractSet<T> {
+
+    private static final PersistentSet<?> EMPTY = new PersistentSet<>(PersistentMap.empty());
+
+    private final PersistentMap<T, T> map;
+
+    private PersistentSet(PersistentMap<T, T> map) {
+        this.map = map;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> PersistentSet<T> empty() {
+        return (PersistentSet<T>) EMPTY;
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T> PersistentSet<T> of(Collection<? extends T> collection) {
+        if (collection instanceof PersistentSet) return (PersistentSet<T>) collection;
+        return PersistentSet.<T>empty().plusAll(collection);
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public boolean contains(Object item) {
+        return map.containsKey(item);
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return map.keyIterator();
+    }
+
+    /**
+     * @return a set with {@code item} added, or this set if it already contained the item
+     */
+    public PersistentSet<T> plus(T item) {
+        PersistentMap<T, T> newMap = map.plus(item, item);
+        return newMap == map ? this : new PersistentSet<>(newMap);
+    }
+
+    public PersistentSet<T> plusAll(Collection<? extends T> collection) {
+        PersistentMap<T, T> newMap = map;
+        for (T item : collection) newMap = newMap.plus(item, item);
+        return newMap == map ? this : new PersistentSet<>(newMap);
+    }
+
+    /**
+     * @return a set without {@code item}, or this set if it did not contain the item
+     */
+    public PersistentSet<T> minus(Object item) {
+        PersistentMap<T, T> newMap = map.minus(item);
+        return newMap == map ? this : new PersistentSet<>(newMap);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.vaticle.typedb.common.collection;
+
+/**
+ * Shared helpers for the open-addressing primitive collections. Tables are always a power of two in size, and keys
+ * are scrambled before masking so that sequential IDs do not cluster into long probe runs.
+ */
+class PrimitiveHashing {
+
+    static final int MIN_CAPACITY = 8;
+    static final float LOAD_FACTOR = 0.65f;
+    static final int MAX_CAPACITY = 1 << 30;
+    // a table at the maximum capacity fills beyond the load factor, but always keeps a slot empty to end probe runs
+    static final int MAX_SIZE = MAX_CAPACITY - 1;
+
+    static int mix(long key) {
+        // the finalisation step of MurmurHash3
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    static int mix(int key) {
+        key ^= key >>> 16;
+        key *= 0x85ebca6b;
+        key ^= key >>> 13;
+        key *= 0xc2b2ae35;
+        key ^= key >>> 16;
+        return key;
+    }
+
+    static int capacityFor(int expectedSize) {
+        long required = (long) Math.ceil(expectedSize / (double) LOAD_FACTOR) + 1;
+        if (required >= MAX_CAPACITY) return MAX_CAPACITY;
+        return Math.max(MIN_CAPACITY, Integer.highestOneBit((int) required - 1) << 1);
+    }
+
+    static int threshold(int capacity) {
+        return Math.min(capacity - 1, (int) (capacity * LOAD_FACTOR));
+    }
+
+    static IllegalStateException full() {
+        return new IllegalStateException(String.format("Primitive hash table has reached its maximum size of %d.",
+                MAX_SIZE));
+    }
+}
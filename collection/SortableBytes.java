@@ -0,0 +1,396 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.vaticle.typedb.common.collection;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * Order-preserving binary encodings for building sortable keys: the unsigned lexicographic order of the encoded bytes
+ * matches the natural order of the values. Every encoding is self-delimiting, so values can be concatenated into
+ * composite keys (see {@link #pair(Encoder, Encoder)} and {@link #triple(Encoder, Encoder, Encoder)}) that sort
+ * component by component.
+ *
+ * All reads and writes go through a caller-supplied, big-endian {@link ByteBuffer} at its position, so a single buffer
+ * can be reused across keys without allocating.
+ *
+ * <ul>
+ * <li>{@code long} and {@code int}: fixed width, with the sign bit flipped</li>
+ * <li>{@code double}: fixed width IEEE 754 bits, with the sign bit flipped for positive values and all bits flipped
+ * for negative values, so -0.0 sorts before 0.0 and NaN sorts last</li>
+ * <li>{@code String}: UTF-8, sorting by code point, with each 0x00 byte escaped as 0x00 0xFF, terminated by
+ * 0x00 0x01, which sorts below both an escaped 0x00 and any other byte, whatever follows the string</li>
+ * </ul>
+ *
+ * The {@code long}, {@code int} and {@code double} encoders, and the {@link LongPair} and {@link IntLongPair}
+ * encoders built on them, also read and write primitives without boxing.
+ */
+public class SortableBytes {
+
+    private static final byte NUL = 0x00;
+    private static final byte ESCAPED_NUL = (byte) 0xFF;
+    private static final byte TERMINATOR = 0x01;
+
+    public static final LongEncoder LONG = new LongEncoder();
+    public static final IntEncoder INT = new IntEncoder();
+    public static final DoubleEncoder DOUBLE = new DoubleEncoder();
+
+    public static final Encoder<String> STRING = new Encoder<String>() {
+        @Override
+        public void write(ByteBuffer buffer, String value) {
+            writeString(buffer, value);
+        }
+
+        @Override
+        public String read(ByteBuffer buffer) {
+            return readString(buffer);
+        }
+
+        @Override
+        public int encodedLength(String value) {
+            return SortableBytes.encodedLength(value);
+        }
+    };
+
+    public static final Encoder<LongPair> LONG_PAIR = new Encoder<LongPair>() {
+        @Override
+        public void write(ByteBuffer buffer, LongPair value) {
+            writeLong(buffer, value.first());
+            writeLong(buffer, value.second());
+        }
+
+        @Override
+        public LongPair read(ByteBuffer buffer) {
+            long first = readLong(buffer);
+            return new LongPair(first, readLong(buffer));
+        }
+
+        @Override
+        public int encodedLength(LongPair value) {
+            return Long.BYTES * 2;
+        }
+    };
+
+    public static final Encoder<IntLongPair> INT_LONG_PAIR = new Encoder<IntLongPair>() {
+        @Override
+        public void write(ByteBuffer buffer, IntLongPair value) {
+            writeInt(buffer, value.first());
+            writeLong(buffer, value.second());
+        }
+
+        @Override
+        public IntLongPair read(ByteBuffer buffer) {
+            int first = readInt(buffer);
+            return new IntLongPair(first, readLong(buffer));
+        }
+
+        @Override
+        public int encodedLength(IntLongPair value) {
+            return Integer.BYTES + Long.BYTES;
+        }
+    };
+
+    public static void writeLong(ByteBuffer buffer, long value) {
+        assert buffer.order() == ByteOrder.BIG_ENDIAN;
+        buffer.putLong(value ^ Long.MIN_VALUE);
+    }
+
+    public static long readLong(ByteBuffer buffer) {
+        assert buffer.order() == ByteOrder.BIG_ENDIAN;
+        return buffer.getLong() ^ Long.MIN_VALUE;
+    }
+
+    public static void writeInt(ByteBuffer buffer, int value) {
+        assert buffer.order() == ByteOrder.BIG_ENDIAN;
+        buffer.putInt(value ^ Integer.MIN_VALUE);
+    }
+
+    public static int readInt(ByteBuffer buffer) {
+        assert buffer.order() == ByteOrder.BIG_ENDIAN;
+        return buffer.getInt() ^ Integer.MIN_VALUE;
+    }
+
+    public static void writeDouble(ByteBuffer buffer, double value) {
+        assert buffer.order() == ByteOrder.BIG_ENDIAN;
+        long bits = Double.doubleToLongBits(value);
+        buffer.putLong(bits ^ ((bits >> 63) | Long.MIN_VALUE));
+    }
+
+    public static double readDouble(ByteBuffer buffer) {
+        assert buffer.order() == ByteOrder.BIG_ENDIAN;
+        long encoded = buffer.getLong();
+        return Double.longBitsToDouble(encoded ^ ((~encoded >> 63) | Long.MIN_VALUE));
+    }
+
+    /**
+     * Write {@code value} as terminated UTF-8, encoding directly from its characters into the buffer. Unpaired
+     * surrogates are written as '?', as {@link String#getBytes} would.
+     */
+    public static void writeString(ByteBuffer buffer, String value) {
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == 0) {
+                buffer.put(NUL).put(ESCAPED_NUL);
+            } else if (c < 0x80) {
+                buffer.put((byte) c);
+            } else if (c < 0x800) {
+                buffer.put((byte) (0xC0 | c >> 6)).put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                buffer.put((byte) (0xF0 | codePoint >> 18)).put((byte) (0x80 | codePoint >> 12 & 0x3F))
+                        .put((byte) (0x80 | codePoint >> 6 & 0x3F)).put((byte) (0x80 | codePoint & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                buffer.put((byte) '?');
+            } else {
+                buffer.put((byte) (0xE0 | c >> 12)).put((byte) (0x80 | c >> 6 & 0x3F)).put((byte) (0x80 | c & 0x3F));
+            }
+        }
+        buffer.put(NUL).put(TERMINATOR);
+    }
+
+    public static String readString(ByteBuffer buffer) {
+        StringBuilder builder = new StringBuilder();
+        readString(buffer, builder);
+        return builder.toString();
+    }
+
+    /**
+     * Decode a string written by {@link #writeString(ByteBuffer, String)} into {@code builder}, which can be reused
+     * across calls, leaving the buffer positioned after the terminator.
+     */
+    public static void readString(ByteBuffer buffer, StringBuilder builder) {
+        while (true) {
+            int b = buffer.get() & 0xFF;
+            if (b == NUL) {
+                byte next = buffer.get();
+                if (next == TERMINATOR) return;
+                else if (next == ESCAPED_NUL) builder.append((char) 0);
+                else throw new IllegalArgumentException("Invalid byte after 0x00 in a sortable string encoding.");
+            } else if (b < 0x80) {
+                builder.append((char) b);
+            } else if (b < 0xE0) {
+                builder.append((char) ((b & 0x1F) << 6 | buffer.get() & 0x3F));
+            } else if (b < 0xF0) {
+                builder.append((char) ((b & 0x0F) << 12 | (buffer.get() & 0x3F) << 6 | buffer.get() & 0x3F));
+            } else {
+                int codePoint = (b & 0x07) << 18 | (buffer.get() & 0x3F) << 12 | (buffer.get() & 0x3F) << 6
+                        | buffer.get() & 0x3F;
+                builder.appendCodePoint(codePoint);
+            }
+        }
+    }
+
+    /**
+     * @return the number of bytes {@link #writeString(ByteBuffer, String)} writes for {@code value}
+     */
+    public static int encodedLength(String value) {
+        int length = value.length();
+        int bytes = 2;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c == 0 || (c >= 0x80 && c < 0x800)) {
+                bytes += 2;
+            } else if (c < 0x80) {
+                bytes += 1;
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                bytes += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                bytes += 1;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    public static <FIRST, SECOND> Encoder<Pair<FIRST, SECOND>> pair(Encoder<FIRST> first, Encoder<SECOND> second) {
+        return new Encoder<Pair<FIRST, SECOND>>() {
+            @Override
+            public void write(ByteBuffer buffer, Pair<FIRST, SECOND> value) {
+                first.write(buffer, value.first());
+                second.write(buffer, value.second());
+            }
+
+            @Override
+            public Pair<FIRST, SECOND> read(ByteBuffer buffer) {
+                FIRST f = first.read(buffer);
+                return new Pair<>(f, second.read(buffer));
+            }
+
+            @Override
+            public int encodedLength(Pair<FIRST, SECOND> value) {
+                return first.encodedLength(value.first()) + second.encodedLength(value.second());
+            }
+        };
+    }
+
+    public static <FIRST, SECOND, THIRD> Encoder<Triple<FIRST, SECOND, THIRD>> triple(
+            Encoder<FIRST> first, Encoder<SECOND> second, Encoder<THIRD> third) {
+        return new Encoder<Triple<FIRST, SECOND, THIRD>>() {
+            @Override
+            public void write(ByteBuffer buffer, Triple<FIRST, SECOND, THIRD> value) {
+                first.write(buffer, value.first());
+                second.write(buffer, value.second());
+                third.write(buffer, value.third());
+            }
+
+            @Override
+            public Triple<FIRST, SECOND, THIRD> read(ByteBuffer buffer) {
+                FIRST f = first.read(buffer);
+                SECOND s = second.read(buffer);
+                return new Triple<>(f, s, third.read(buffer));
+            }
+
+            @Override
+            public int encodedLength(Triple<FIRST, SECOND, THIRD> value) {
+                return first.encodedLength(value.first()) + second.encodedLength(value.second()) +
+                        third.encodedLength(value.third());
+            }
+        };
+    }
+
+    /**
+     * Copy the bytes written to {@code buffer} since it was last cleared into a new array, and clear it for reuse.
+     */
+    public static byte[] drain(ByteBuffer buffer) {
+        buffer.flip();
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.get(bytes);
+        buffer.clear();
+        return bytes;
+    }
+
+    /**
+     * Compare two encoded keys in the order of the values they encode.
+     */
+    public static int compare(byte[] first, byte[] second) {
+        return Arrays.compareUnsigned(first, second);
+    }
+
+    /**
+     * Compare the remaining bytes of two buffers in the order of the values they encode, without changing their
+     * positions.
+     */
+    public static int compare(ByteBuffer first, ByteBuffer second) {
+        int length = Math.min(first.remaining(), second.remaining());
+        for (int i = 0; i < length; i++) {
+            int cmp = Byte.compareUnsigned(first.get(first.position() + i), second.get(second.position() + i));
+            if (cmp != 0) return cmp;
+        }
+        return first.remaining() - second.remaining();
+    }
+
+    public interface Encoder<T> {
+
+        void write(ByteBuffer buffer, T value);
+
+        T read(ByteBuffer buffer);
+
+        int encodedLength(T value);
+    }
+
+    public static class LongEncoder implements Encoder<Long> {
+
+        private LongEncoder() {
+        }
+
+        public void write(ByteBuffer buffer, long value) {
+            writeLong(buffer, value);
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, Long value) {
+            writeLong(buffer, value);
+        }
+
+        public long readLong(ByteBuffer buffer) {
+            return SortableBytes.readLong(buffer);
+        }
+
+        @Override
+        public Long read(ByteBuffer buffer) {
+            return SortableBytes.readLong(buffer);
+        }
+
+        @Override
+        public int encodedLength(Long value) {
+            return Long.BYTES;
+        }
+    }
+
+    public static class IntEncoder implements Encoder<Integer> {
+
+        private IntEncoder() {
+        }
+
+        public void write(ByteBuffer buffer, int value) {
+            writeInt(buffer, value);
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, Integer value) {
+            writeInt(buffer, value);
+        }
+
+        public int readInt(ByteBuffer buffer) {
+            return SortableBytes.readInt(buffer);
+        }
+
+        @Override
+        public Integer read(ByteBuffer buffer) {
+            return SortableBytes.readInt(buffer);
+        }
+
+        @Override
+        public int encodedLength(Integer value) {
+            return Integer.BYTES;
+        }
+    }
+
+    public static class DoubleEncoder implements Encoder<Double> {
+
+        private DoubleEncoder() {
+        }
+
+        public void write(ByteBuffer buffer, double value) {
+            writeDouble(buffer, value);
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, Double value) {
+            writeDouble(buffer, value);
+        }
+
+        public double readDouble(ByteBuffer buffer) {
+            return SortableBytes.readDouble(buffer);
+        }
+
+        @Override
+        public Double read(ByteBuffer buffer) {
+            return SortableBytes.readDouble(buffer);
+        }
+
+        @Override
+        public int encodedLength(Double value) {
+            return Double.BYTES;
+        }
+    }
+}
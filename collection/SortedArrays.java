@@ -0,0 +1,420 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.vaticle.typedb.common.collection;
+
+import java.util.Arrays;
+
+/**
+ * Set operations over sorted, duplicate-free primitive arrays. When one input is much larger than the other, the
+ * smaller input drives a galloping (exponential) search through the larger; otherwise both are merged in a single
+ * pass whose loop body avoids data-dependent branches.
+ */
+public class SortedArrays {
+
+    // size ratio beyond which galloping through the larger array beats a linear merge
+    private static final int GALLOP_RATIO = 32;
+
+    /**
+     * @return the sorted intersection of two sorted, duplicate-free arrays
+     */
+    public static long[] intersection(long[] first, long[] second) {
+        long[] out = new long[Math.min(first.length, second.length)];
+        return trim(out, intersection(first, first.length, second, second.length, out));
+    }
+
+    /**
+     * Write the intersection of the first {@code firstLength} and {@code secondLength} elements of two sorted,
+     * duplicate-free arrays into {@code out}, which must have room for the smaller of the two.
+     *
+     * @return the number of elements written
+     */
+    public static int intersection(long[] first, int firstLength, long[] second, int secondLength, long[] out) {
+        if (firstLength > secondLength) return intersection(second, secondLength, first, firstLength, out);
+        if (firstLength == 0) return 0;
+        if (secondLength / firstLength >= GALLOP_RATIO) return intersectionGallop(first, firstLength, second, secondLength, out);
+        else return intersectionMerge(first, firstLength, second, secondLength, out);
+    }
+
+    private static int intersectionMerge(long[] first, int firstLength, long[] second, int secondLength, long[] out) {
+        int i = 0, j = 0, k = 0;
+        while (i < firstLength && j < secondLength) {
+            long a = first[i];
+            long b = second[j];
+            // always write, but only keep the write if the elements matched: no unpredictable branches
+            out[k] = a;
+            k += a == b ? 1 : 0;
+            i += a <= b ? 1 : 0;
+            j += a >= b ? 1 : 0;
+        }
+        return k;
+    }
+
+    private static int intersectionGallop(long[] small, int smallLength, long[] large, int largeLength, long[] out) {
+        int j = 0, k = 0;
+        for (int i = 0; i < smallLength && j < largeLength; i++) {
+            long a = small[i];
+            j = gallop(large, j, largeLength, a);
+            if (j < largeLength && large[j] == a) out[k++] = a;
+        }
+        return k;
+    }
+
+    public static boolean hasIntersection(long[] first, long[] second) {
+        return hasIntersection(first, first.length, second, second.length);
+    }
+
+    public static boolean hasIntersection(long[] first, int firstLength, long[] second, int secondLength) {
+        if (firstLength > secondLength) return hasIntersection(second, secondLength, first, firstLength);
+        if (firstLength == 0) return false;
+        if (secondLength / firstLength >= GALLOP_RATIO) {
+            int j = 0;
+            for (int i = 0; i < firstLength && j < secondLength; i++) {
+                j = gallop(second, j, secondLength, first[i]);
+                if (j < secondLength && second[j] == first[i]) return true;
+            }
+        } else {
+            int i = 0, j = 0;
+            while (i < firstLength && j < secondLength) {
+                long a = first[i];
+                long b = second[j];
+                if (a == b) return true;
+                i += a < b ? 1 : 0;
+                j += a > b ? 1 : 0;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the sorted union of two sorted, duplicate-free arrays
+     */
+    public static long[] union(long[] first, long[] second) {
+        long[] out = new long[first.length + second.length];
+        return trim(out, union(first, first.length, second, second.length, out));
+    }
+
+    /**
+     * Write the union of two sorted, duplicate-free arrays into {@code out}, which must have room for both.
+     *
+     * @return the number of elements written
+     */
+    public static int union(long[] first, int firstLength, long[] second, int secondLength, long[] out) {
+        int i = 0, j = 0, k = 0;
+        while (i < firstLength && j < secondLength) {
+            long a = first[i];
+            long b = second[j];
+            out[k++] = a <= b ? a : b;
+            i += a <= b ? 1 : 0;
+            j += a >= b ? 1 : 0;
+        }
+        System.arraycopy(first, i, out, k, firstLength - i);
+        k += firstLength - i;
+        System.arraycopy(second, j, out, k, secondLength - j);
+        k += secondLength - j;
+        return k;
+    }
+
+    /**
+     * @return the sorted elements of {@code first} that are not in {@code second}, both sorted and duplicate-free
+     */
+    public static long[] difference(long[] first, long[] second) {
+        long[] out = new long[first.length];
+        return trim(out, difference(first, first.length, second, second.length, out));
+    }
+
+    /**
+     * Write the elements of {@code first} that are not in {@code second} into {@code out}, which must have room for
+     * all of {@code first}.
+     *
+     * @return the number of elements written
+     */
+    public static int difference(long[] first, int firstLength, long[] second, int secondLength, long[] out) {
+        int i = 0, j = 0, k = 0;
+        if (firstLength > 0 && secondLength / firstLength >= GALLOP_RATIO) {
+            for (; i < firstLength && j < secondLength; i++) {
+                long a = first[i];
+                j = gallop(second, j, secondLength, a);
+                if (j >= secondLength || second[j] != a) out[k++] = a;
+            }
+        } else {
+            while (i < firstLength && j < secondLength) {
+                long a = first[i];
+                long b = second[j];
+                out[k] = a;
+                k += a < b ? 1 : 0;
+                i += a <= b ? 1 : 0;
+                j += a >= b ? 1 : 0;
+            }
+        }
+        System.arraycopy(first, i, out, k, firstLength - i);
+        return k + firstLength - i;
+    }
+
+    /**
+     * Intersect any number of sorted, duplicate-free arrays with the leapfrog algorithm: the array with the smallest
+     * current element seeks, by galloping, to the largest current element of any array, until all arrays agree.
+     */
+    public static long[] intersection(long[]... arrays) {
+        if (arrays.length == 0) return new long[0];
+        if (arrays.length == 1) return arrays[0].clone();
+        if (arrays.length == 2) return intersection(arrays[0], arrays[1]);
+        int minLength = Integer.MAX_VALUE;
+        for (long[] array : arrays) minLength = Math.min(minLength, array.length);
+        long[] out = new long[minLength];
+        if (minLength == 0) return out;
+
+        int n = arrays.length;
+        long[][] sorted = arrays.clone();
+        Arrays.sort(sorted, (x, y) -> Long.compare(x[0], y[0]));
+        int[] positions = new int[n];
+        int k = 0;
+        int p = 0;
+        long max = sorted[n - 1][0];
+        while (true) {
+            long[] array = sorted[p];
+            long current = array[positions[p]];
+            if (current == max) {
+                out[k++] = current;
+                if (++positions[p] >= array.length) break;
+            } else {
+                positions[p] = gallop(array, positions[p], array.length, max);
+                if (positions[p] >= array.length) break;
+            }
+            max = array[positions[p]];
+            p = p + 1 == n ? 0 : p + 1;
+        }
+        return trim(out, k);
+    }
+
+    /**
+     * @return the first index in [from, to) whose element is at least {@code target}, or {@code to} if there is none
+     */
+    static int gallop(long[] array, int from, int to, long target) {
+        if (from >= to || array[from] >= target) return from;
+        // find a window [from + bound / 2, from + bound] containing the target by doubling, then binary search it
+        int bound = 1;
+        while (from + bound < to && array[from + bound] < target) bound <<= 1;
+        int low = from + (bound >>> 1) + 1;
+        int high = Math.min(from + bound, to);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (array[mid] < target) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    private static long[] trim(long[] array, int length) {
+        return length == array.length ? array : Arrays.copyOf(array, length);
+    }
+
+    /**
+     * @return the sorted intersection of two sorted, duplicate-free arrays
+     */
+    public static int[] intersection(int[] first, int[] second) {
+        int[] out = new int[Math.min(first.length, second.length)];
+        return trim(out, intersection(first, first.length, second, second.length, out));
+    }
+
+    /**
+     * Write the intersection of the first {@code firstLength} and {@code secondLength} elements of two sorted,
+     * duplicate-free arrays into {@code out}, which must have room for the smaller of the two.
+     *
+     * @return the number of elements written
+     */
+    public static int intersection(int[] first, int firstLength, int[] second, int secondLength, int[] out) {
+        if (firstLength > secondLength) return intersection(second, secondLength, first, firstLength, out);
+        if (firstLength == 0) return 0;
+        if (secondLength / firstLength >= GALLOP_RATIO) return intersectionGallop(first, firstLength, second, secondLength, out);
+        else return intersectionMerge(first, firstLength, second, secondLength, out);
+    }
+
+    private static int intersectionMerge(int[] first, int firstLength, int[] second, int secondLength, int[] out) {
+        int i = 0, j = 0, k = 0;
+        while (i < firstLength && j < secondLength) {
+            int a = first[i];
+            int b = second[j];
+            // always write, but only keep the write if the elements matched: no unpredictable branches
+            out[k] = a;
+            k += a == b ? 1 : 0;
+            i += a <= b ? 1 : 0;
+            j += a >= b ? 1 : 0;
+        }
+        return k;
+    }
+
+    private static int intersectionGallop(int[] small, int smallLength, int[] large, int largeLength, int[] out) {
+        int j = 0, k = 0;
+        for (int i = 0; i < smallLength && j < largeLength; i++) {
+            int a = small[i];
+            j = gallop(large, j, largeLength, a);
+            if (j < largeLength && large[j] == a) out[k++] = a;
+        }
+        return k;
+    }
+
+    public static boolean hasIntersection(int[] first, int[] second) {
+        return hasIntersection(first, first.length, second, second.length);
+    }
+
+    public static boolean hasIntersection(int[] first, int firstLength, int[] second, int secondLength) {
+        if (firstLength > secondLength) return hasIntersection(second, secondLength, first, firstLength);
+        if (firstLength == 0) return false;
+        if (secondLength / firstLength >= GALLOP_RATIO) {
+            int j = 0;
+            for (int i = 0; i < firstLength && j < secondLength; i++) {
+                j = gallop(second, j, secondLength, first[i]);
+                if (j < secondLength && second[j] == first[i]) return true;
+            }
+        } else {
+            int i = 0, j = 0;
+            while (i < firstLength && j < secondLength) {
+                int a = first[i];
+                int b = second[j];
+                if (a == b) return true;
+                i += a < b ? 1 : 0;
+                j += a > b ? 1 : 0;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the sorted union of two sorted, duplicate-free arrays
+     */
+    public static int[] union(int[] first, int[] second) {
+        int[] out = new int[first.length + second.length];
+        return trim(out, union(first, first.length, second, second.length, out));
+    }
+
+    /**
+     * Write the union of two sorted, duplicate-free arrays into {@code out}, which must have room for both.
+     *
+     * @return the number of elements written
+     */
+    public static int union(int[] first, int firstLength, int[] second, int secondLength, int[] out) {
+        int i = 0, j = 0, k = 0;
+        while (i < firstLength && j < secondLength) {
+            int a = first[i];
+            int b = second[j];
+            out[k++] = a <= b ? a : b;
+            i += a <= b ? 1 : 0;
+            j += a >= b ? 1 : 0;
+        }
+        System.arraycopy(first, i, out, k, firstLength - i);
+        k += firstLength - i;
+        System.arraycopy(second, j, out, k, secondLength - j);
+        k += secondLength - j;
+        return k;
+    }
+
+    /**
+     * @return the sorted elements of {@code first} that are not in {@code second}, both sorted and duplicate-free
+     */
+    public static int[] difference(int[] first, int[] second) {
+        int[] out = new int[first.length];
+        return trim(out, difference(first, first.length, second, second.length, out));
+    }
+
+    /**
+     * Write the elements of {@code first} that are not in {@code second} into {@code out}, which must have room for
+     * all of {@code first}.
+     *
+     * @return the number of elements written
+     */
+    public static int difference(int[] first, int firstLength, int[] second, int secondLength, int[] out) {
+        int i = 0, j = 0, k = 0;
+        if (firstLength > 0 && secondLength / firstLength >= GALLOP_RATIO) {
+            for (; i < firstLength && j < secondLength; i++) {
+                int a = first[i];
+                j = gallop(second, j, secondLength, a);
+                if (j >= secondLength || second[j] != a) out[k++] = a;
+            }
+        } else {
+            while (i < firstLength && j < secondLength) {
+                int a = first[i];
+                int b = second[j];
+                out[k] = a;
+                k += a < b ? 1 : 0;
+                i += a <= b ? 1 : 0;
+                j += a >= b ? 1 : 0;
+            }
+        }
+        System.arraycopy(first, i, out, k, firstLength - i);
+        return k + firstLength - i;
+    }
+
+    /**
+     * Intersect any number of sorted, duplicate-free arrays with the leapfrog algorithm: the array with the smallest
+     * current element seeks, by galloping, to the largest current element of any array, until all arrays agree.
+     */
+    public static int[] intersection(int[]... arrays) {
+        if (arrays.length == 0) return new int[0];
+        if (arrays.length == 1) return arrays[0].clone();
+        if (arrays.length == 2) return intersection(arrays[0], arrays[1]);
+        int minLength = Integer.MAX_VALUE;
+        for (int[] array : arrays) minLength = Math.min(minLength, array.length);
+        int[] out = new int[minLength];
+        if (minLength == 0) return out;
+
+        int n = arrays.length;
+        int[][] sorted = arrays.clone();
+        Arrays.sort(sorted, (x, y) -> Integer.compare(x[0], y[0]));
+        int[] positions = new int[n];
+        int k = 0;
+        int p = 0;
+        int max = sorted[n - 1][0];
+        while (true) {
+            int[] array = sorted[p];
+            int current = array[positions[p]];
+            if (current == max) {
+                out[k++] = current;
+                if (++positions[p] >= array.length) break;
+            } else {
+                positions[p] = gallop(array, positions[p], array.length, max);
+                if (positions[p] >= array.length) break;
+            }
+            max = array[positions[p]];
+            p = p + 1 == n ? 0 : p + 1;
+        }
+        return trim(out, k);
+    }
+
+    /**
+     * @return the first index in [from, to) whose element is at least {@code target}, or {@code to} if there is none
+     */
+    static int gallop(int[] array, int from, int to, int target) {
+        if (from >= to || array[from] >= target) return from;
+        // find a window [from + bound / 2, from + bound] containing the target by doubling, then binary search it
+        int bound = 1;
+        while (from + bound < to && array[from + bound] < target) bound <<= 1;
+        int low = from + (bound >>> 1) + 1;
+        int high = Math.min(from + bound, to);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (array[mid] < target) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    private static int[] trim(int[] array, int length) {
+        return length == array.length ? array : Arrays.copyOf(array, length);
+    }
+}
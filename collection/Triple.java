@@ -24,13 +24,12 @@ public class Triple<FIRST, SECOND, THRID> {
     private final FIRST first;
     private final SECOND second;
     private final THRID third;
-    private final int hash;
+    private int hash;
 
     public Triple(FIRST first, SECOND second, THRID third) {
         this.first = first;
         this.second = second;
         this.third = third;
-        this.hash = Objects.hash(this.first, this.second, this.third);
     }
 
     public FIRST first() {
@@ -60,6 +59,12 @@ public class Triple<FIRST, SECOND, THRID> {
     }
 
     public int hashCode() {
-        return hash;
+        // computed on first use and cached, as in Pair; equal to Objects.hash(first, second, third)
+        int h = hash;
+        if (h == 0) {
+            h = 31 * (31 * (31 + Objects.hashCode(first)) + Objects.hashCode(second)) + Objects.hashCode(third);
+            hash = h;
+        }
+        return h;
     }
 }
@@ -0,0 +1,147 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.vaticle.typedb.common.collection.test;
+
+import com.vaticle.typedb.common.collection.BitmapSet;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.BitSet;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class BitmapSetTest {
+
+    // four partitions of 2^16 values each
+    private static final int RANGE = 4 << 16;
+
+    /**
+     * @param density the chance of each value being present, so that partitions become arrays, bitmaps or runs
+     */
+    private static BitSet random(Random random, double density) {
+        BitSet bits = new BitSet(RANGE);
+        for (int i = 0; i < RANGE; i++) {
+            if (random.nextDouble() < density) bits.set(i);
+        }
+        // a long run, to be compressed by runOptimize()
+        int start = random.nextInt(RANGE - 20_000);
+        bits.set(start, start + 20_000);
+        return bits;
+    }
+
+    private static BitmapSet bitmap(BitSet bits) {
+        BitmapSet set = new BitmapSet();
+        bits.stream().forEach(set::add);
+        return set;
+    }
+
+    private static void assertMatches(BitSet expected, BitmapSet actual) {
+        assertEquals(expected.cardinality(), actual.cardinality());
+        assertEquals(expected.isEmpty(), actual.isEmpty());
+        assertArrayEquals(expected.stream().toArray(), actual.toArray());
+        PrimitiveIterator.OfInt iterator = actual.iterator();
+        expected.stream().forEach(value -> assertEquals(value, iterator.nextInt()));
+        assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    public void updates_match_bit_set() {
+        Random random = new Random(0);
+        BitSet expected = new BitSet(RANGE);
+        BitmapSet actual = new BitmapSet();
+        for (int i = 0; i < 200_000; i++) {
+            // mostly within the first partition, so that it converts from an array to a bitmap and back
+            int value = random.nextInt(4) == 0 ? random.nextInt(RANGE) : random.nextInt(10_000);
+            if (random.nextInt(3) == 0) {
+                assertEquals(expected.get(value), actual.remove(value));
+                expected.clear(value);
+            } else {
+                assertEquals(!expected.get(value), actual.add(value));
+                expected.set(value);
+            }
+        }
+        assertMatches(expected, actual);
+        for (int value = 0; value < RANGE; value += 7) assertEquals(expected.get(value), actual.contains(value));
+    }
+
+    @Test
+    public void set_algebra_matches_bit_set() {
+        Random random = new Random(1);
+        double[] densities = {0.001, 0.05, 0.5, 0.95};
+        for (double firstDensity : densities) {
+            for (double secondDensity : densities) {
+                BitSet first = random(random, firstDensity);
+                BitSet second = random(random, secondDensity);
+                for (boolean optimize : new boolean[]{false, true}) {
+                    BitmapSet firstSet = bitmap(first);
+                    BitmapSet secondSet = bitmap(second);
+                    if (optimize) {
+                        firstSet.runOptimize();
+                        secondSet.runOptimize();
+                        assertMatches(first, firstSet);
+                    }
+
+                    BitSet and = (BitSet) first.clone();
+                    and.and(second);
+                    assertMatches(and, firstSet.and(secondSet));
+                    BitSet or = (BitSet) first.clone();
+                    or.or(second);
+                    assertMatches(or, firstSet.or(secondSet));
+                    BitSet andNot = (BitSet) first.clone();
+                    andNot.andNot(second);
+                    assertMatches(andNot, firstSet.andNot(secondSet));
+                    assertEquals(first.intersects(second), firstSet.intersects(secondSet));
+                    // the operands are left unchanged
+                    assertMatches(first, firstSet);
+                    assertMatches(second, secondSet);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void serialization_round_trips() {
+        Random random = new Random(2);
+        for (double density : new double[]{0.001, 0.5}) {
+            BitSet bits = random(random, density);
+            BitmapSet set = bitmap(bits);
+            set.runOptimize();
+            ByteBuffer buffer = ByteBuffer.allocate(set.serializedSizeInBytes());
+            set.serialize(buffer);
+            assertEquals(0, buffer.remaining());
+            buffer.flip();
+            BitmapSet read = BitmapSet.deserialize(buffer);
+            assertMatches(bits, read);
+            assertEquals(set, read);
+            assertEquals(set.hashCode(), read.hashCode());
+        }
+    }
+
+    @Test
+    public void values_are_ordered_as_unsigned_ints() {
+        BitmapSet set = BitmapSet.of(-1, 0, 1, Integer.MIN_VALUE, Integer.MAX_VALUE);
+        assertArrayEquals(new int[]{0, 1, Integer.MAX_VALUE, Integer.MIN_VALUE, -1}, set.toArray());
+        assertTrue(set.contains(-1) && set.contains(Integer.MIN_VALUE));
+    }
+}
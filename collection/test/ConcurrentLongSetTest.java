@@ -0,0 +1,105 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.vaticle.typedb.common.collection.test;
+
+import com.vaticle.typedb.common.collection.ConcurrentLongSet;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PrimitiveIterator;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ConcurrentLongSetTest {
+
+    private static final int THREADS = 8;
+    private static final int KEYS = 200_000;
+
+    @Test
+    public void keys_are_added_exactly_once_while_resizing_under_contention() throws Exception {
+        for (int attempt = 0; attempt < 5; attempt++) {
+            ConcurrentLongSet set = new ConcurrentLongSet();
+            ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+            CountDownLatch start = new CountDownLatch(1);
+            try {
+                List<Future<Integer>> added = new ArrayList<>();
+                for (int thread = 0; thread < THREADS; thread++) {
+                    int offset = thread;
+                    added.add(executor.submit(() -> {
+                        start.await();
+                        int count = 0;
+                        // every thread adds every key, each from a different starting point
+                        for (int i = 0; i < KEYS; i++) {
+                            long key = (i + (long) offset * KEYS / THREADS) % KEYS - KEYS / 2;
+                            if (set.add(key * 31)) count++;
+                        }
+                        return count;
+                    }));
+                }
+                start.countDown();
+                int total = 0;
+                for (Future<Integer> count : added) total += count.get();
+                assertEquals(KEYS, total);
+            } finally {
+                executor.shutdownNow();
+            }
+            assertEquals(KEYS, set.size());
+            for (long key = -KEYS / 2; key < KEYS / 2; key++) assertTrue(set.contains(key * 31));
+            assertFalse(set.contains(KEYS * 31L));
+        }
+    }
+
+    @Test
+    public void iterator_returns_every_key_once() {
+        ConcurrentLongSet set = new ConcurrentLongSet(4);
+        Set<Long> expected = new HashSet<>();
+        for (long key = -1000; key <= 1000; key++) {
+            set.add(key);
+            expected.add(key);
+        }
+        set.add(Long.MIN_VALUE);
+        expected.add(Long.MIN_VALUE);
+        Set<Long> iterated = new HashSet<>();
+        PrimitiveIterator.OfLong iterator = set.iterator();
+        while (iterator.hasNext()) assertTrue(iterated.add(iterator.nextLong()));
+        assertEquals(expected, iterated);
+        assertEquals(expected.size(), set.size());
+    }
+
+    @Test
+    public void marker_values_are_keys_like_any_other() {
+        ConcurrentLongSet set = new ConcurrentLongSet();
+        assertFalse(set.contains(0));
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+        assertTrue(set.add(Long.MIN_VALUE));
+        assertFalse(set.add(Long.MIN_VALUE));
+        assertTrue(set.contains(0) && set.contains(Long.MIN_VALUE));
+        assertEquals(2, set.size());
+    }
+}
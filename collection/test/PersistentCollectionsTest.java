@@ -0,0 +1,168 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.vaticle.typedb.common.collection.test;
+
+import com.vaticle.typedb.common.collection.PersistentMap;
+import com.vaticle.typedb.common.collection.PersistentSet;
+import com.vaticle.typedb.common.collection.PersistentVector;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PersistentCollectionsTest {
+
+    /**
+     * A key whose hash codes collide in groups, so that maps and sets must hold several keys per hash.
+     */
+    private static class Key {
+
+        private final int value;
+
+        private Key(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && ((Key) obj).value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return value / 4;
+        }
+
+        @Override
+        public String toString() {
+            return "Key(" + value + ")";
+        }
+    }
+
+    @Test
+    public void vector_matches_array_list_across_trie_levels() {
+        PersistentVector<Integer> vector = PersistentVector.empty();
+        List<Integer> expected = new ArrayList<>();
+        List<PersistentVector<Integer>> versions = new ArrayList<>();
+        for (int i = 0; i < 40_000; i++) {
+            vector = vector.plus(i);
+            expected.add(i);
+            if (Integer.bitCount(i) == 1) versions.add(vector);
+        }
+        assertEquals(expected, vector);
+        assertEquals(expected, new ArrayList<>(vector));
+        for (PersistentVector<Integer> version : versions) {
+            assertEquals(expected.subList(0, version.size()), version);
+        }
+        assertEquals(expected, PersistentVector.of(expected));
+    }
+
+    @Test
+    public void vector_updates_leave_earlier_versions_unchanged() {
+        PersistentVector<Integer> original = PersistentVector.<Integer>empty().plusAll(List.of(0, 1, 2));
+        for (int i = 3; i < 2000; i++) original = original.plus(i);
+        Random random = new Random(0);
+        PersistentVector<Integer> updated = original;
+        List<Integer> expected = new ArrayList<>(original);
+        for (int i = 0; i < 1000; i++) {
+            int index = random.nextInt(expected.size());
+            updated = updated.with(index, -i);
+            expected.set(index, -i);
+        }
+        assertEquals(expected, updated);
+        for (int i = 0; i < original.size(); i++) assertEquals(i, (int) original.get(i));
+        try {
+            original.get(original.size());
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void map_matches_hash_map_with_colliding_keys() {
+        Random random = new Random(0);
+        PersistentMap<Key, Integer> map = PersistentMap.empty();
+        Map<Key, Integer> expected = new HashMap<>();
+        PersistentMap<Key, Integer> snapshot = null;
+        Map<Key, Integer> expectedSnapshot = null;
+        for (int i = 0; i < 50_000; i++) {
+            Key key = new Key(random.nextInt(5000));
+            if (random.nextInt(3) == 0) {
+                map = map.minus(key);
+                expected.remove(key);
+            } else {
+                map = map.plus(key, i);
+                expected.put(key, i);
+            }
+            if (i == 25_000) {
+                snapshot = map;
+                expectedSnapshot = new HashMap<>(expected);
+            }
+        }
+        assertEquals(expected, map);
+        assertEquals(expected.size(), map.entrySet().size());
+        for (Map.Entry<Key, Integer> entry : expected.entrySet()) {
+            assertTrue(map.containsKey(entry.getKey()));
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        assertNull(map.get(new Key(-1)));
+        assertEquals(-1, (int) map.getOrDefault(new Key(-1), -1));
+        assertEquals(expectedSnapshot, snapshot);
+        assertEquals(expected, PersistentMap.of(expected));
+    }
+
+    @Test
+    public void set_matches_hash_set_with_colliding_keys() {
+        Random random = new Random(1);
+        PersistentSet<Key> set = PersistentSet.empty();
+        Set<Key> expected = new HashSet<>();
+        for (int i = 0; i < 50_000; i++) {
+            Key key = new Key(random.nextInt(5000));
+            if (random.nextInt(3) == 0) {
+                set = set.minus(key);
+                expected.remove(key);
+            } else {
+                PersistentSet<Key> before = set;
+                set = set.plus(key);
+                assertEquals(!expected.contains(key), before.size() + 1 == set.size());
+                expected.add(key);
+            }
+        }
+        assertEquals(expected, set);
+        assertEquals(expected, new HashSet<>(set));
+        assertFalse(set.contains(new Key(-1)));
+        assertEquals(expected, PersistentSet.of(expected));
+        PersistentSet<Key> emptied = set;
+        for (Key key : expected) emptied = emptied.minus(key);
+        assertTrue(emptied.isEmpty());
+        assertEquals(expected, set);
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.vaticle.typedb.common.collection.test;
+
+import com.vaticle.typedb.common.collection.IntHashSet;
+import com.vaticle.typedb.common.collection.IntIntHashMap;
+import com.vaticle.typedb.common.collection.LongHashSet;
+import com.vaticle.typedb.common.collection.LongObjectHashMap;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.Set;
+
+import static com.vaticle.typedb.common.collection.Collections.intSet;
+import static com.vaticle.typedb.common.collection.Collections.longSet;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class PrimitiveHashCollectionsTest {
+
+    @Test
+    public void long_set_matches_hash_set() {
+        Random random = new Random(0);
+        LongHashSet set = new LongHashSet();
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(20_000) - 10_000;
+            if (random.nextInt(3) == 0) assertEquals(expected.remove(key), set.remove(key));
+            else assertEquals(expected.add(key), set.add(key));
+        }
+        assertEquals(expected.size(), set.size());
+        Set<Long> iterated = new HashSet<>();
+        PrimitiveIterator.OfLong iterator = set.iterator();
+        while (iterator.hasNext()) assertTrue(iterated.add(iterator.nextLong()));
+        assertEquals(expected, iterated);
+    }
+
+    @Test
+    public void long_object_map_matches_hash_map() {
+        Random random = new Random(0);
+        LongObjectHashMap<String> map = new LongObjectHashMap<>();
+        Map<Long, String> expected = new HashMap<>();
+        for (int i = 0; i < 100_000; i++) {
+            long key = random.nextInt(20_000) - 10_000;
+            if (random.nextInt(3) == 0) assertEquals(expected.remove(key), map.remove(key));
+            else assertEquals(expected.put(key, "v" + i), map.put(key, "v" + i));
+        }
+        Map<Long, String> iterated = new HashMap<>();
+        LongObjectHashMap<String>.Iterator iterator = map.iterator();
+        while (iterator.hasNext()) {
+            iterator.next();
+            iterated.put(iterator.key(), iterator.value());
+        }
+        assertEquals(expected, iterated);
+    }
+
+    @Test
+    public void iterators_are_independent() {
+        IntHashSet set = IntHashSet.of(0, 1, 2, 3);
+        PrimitiveIterator.OfInt outer = set.iterator();
+        int pairs = 0;
+        while (outer.hasNext()) {
+            outer.nextInt();
+            PrimitiveIterator.OfInt inner = set.iterator();
+            while (inner.hasNext()) {
+                inner.nextInt();
+                pairs++;
+            }
+        }
+        assertEquals(16, pairs);
+
+        IntIntHashMap map = new IntIntHashMap();
+        map.put(1, 10);
+        map.put(2, 20);
+        assertNotSame(map.iterator(), map.iterator());
+        LongObjectHashMap<String> objects = new LongObjectHashMap<>();
+        assertNotSame(objects.iterator(), objects.iterator());
+    }
+
+    @Test
+    public void sets_from_collections_are_unmodifiable() {
+        LongHashSet longs = longSet(0, 1, 2);
+        IntHashSet ints = intSet(0, 1, 2);
+        assertTrue(longs.contains(0) && longs.contains(2));
+        assertTrue(ints.contains(0) && ints.contains(2));
+        for (Runnable update : new Runnable[]{
+                () -> longs.add(3), () -> longs.remove(1), longs::clear, () -> longs.addAll(LongHashSet.of(4)),
+                () -> ints.add(3), () -> ints.remove(1), ints::clear, () -> ints.addAll(IntHashSet.of(4))
+        }) {
+            try {
+                update.run();
+                fail();
+            } catch (UnsupportedOperationException e) {
+                // expected
+            }
+        }
+        assertEquals(3, longs.size());
+        assertFalse(ints.contains(3));
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.vaticle.typedb.common.collection.test;
+
+import com.vaticle.typedb.common.collection.IntLongPair;
+import com.vaticle.typedb.common.collection.LongPair;
+import com.vaticle.typedb.common.collection.Pair;
+import com.vaticle.typedb.common.collection.SortableBytes;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.function.BiConsumer;
+
+import static com.vaticle.typedb.common.collection.Collections.pair;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SortableBytesTest {
+
+    private static final String[] STRINGS = {
+            "", "\0", "\0\0", "\0a", "a", "a\0", "a\0\0", "a\0b", "a\u0001", "ab", "b", "\u007f", "\u0080",
+            "\u07ff", "\u0800", "\uffff", "\ud800\udc00", "\udbff\udfff", "z\ud83d\ude00z"
+    };
+
+    private static final Comparator<String> CODE_POINT_ORDER =
+            Comparator.comparing(string -> string.codePoints().toArray(), Arrays::compare);
+
+    private static <T> byte[] encode(BiConsumer<ByteBuffer, T> writer, T value) {
+        ByteBuffer buffer = ByteBuffer.allocate(256);
+        writer.accept(buffer, value);
+        return SortableBytes.drain(buffer);
+    }
+
+    private static <T> void assertOrderPreserved(List<T> values, Comparator<T> order, BiConsumer<ByteBuffer, T> writer) {
+        for (T first : values) {
+            for (T second : values) {
+                int expected = Integer.signum(order.compare(first, second));
+                int actual = Integer.signum(SortableBytes.compare(encode(writer, first), encode(writer, second)));
+                assertEquals(first + " vs " + second, expected, actual);
+            }
+        }
+    }
+
+    @Test
+    public void longs_round_trip_and_sort() {
+        List<Long> values = new ArrayList<>(List.of(Long.MIN_VALUE, -1L, 0L, 1L, Long.MAX_VALUE));
+        Random random = new Random(0);
+        for (int i = 0; i < 50; i++) values.add(random.nextLong());
+        for (long value : values) {
+            ByteBuffer buffer = ByteBuffer.wrap(encode(SortableBytes.LONG::write, value));
+            assertEquals(value, SortableBytes.LONG.readLong(buffer));
+            assertFalse(buffer.hasRemaining());
+        }
+        assertOrderPreserved(values, Long::compare, SortableBytes.LONG::write);
+    }
+
+    @Test
+    public void ints_round_trip_and_sort() {
+        List<Integer> values = new ArrayList<>(List.of(Integer.MIN_VALUE, -1, 0, 1, Integer.MAX_VALUE));
+        Random random = new Random(0);
+        for (int i = 0; i < 50; i++) values.add(random.nextInt());
+        for (int value : values) {
+            assertEquals(value, SortableBytes.INT.readInt(ByteBuffer.wrap(encode(SortableBytes.INT::write, value))));
+        }
+        assertOrderPreserved(values, Integer::compare, SortableBytes.INT::write);
+    }
+
+    @Test
+    public void doubles_round_trip_and_sort() {
+        List<Double> values = new ArrayList<>(List.of(Double.NEGATIVE_INFINITY, -Double.MAX_VALUE, -1.0,
+                -Double.MIN_VALUE, -0.0, 0.0, Double.MIN_VALUE, 1.0, Double.MAX_VALUE, Double.POSITIVE_INFINITY,
+                Double.NaN));
+        Random random = new Random(0);
+        for (int i = 0; i < 50; i++) values.add(random.nextGaussian() * 1e10);
+        for (double value : values) {
+            double read = SortableBytes.DOUBLE.readDouble(ByteBuffer.wrap(encode(SortableBytes.DOUBLE::write, value)));
+            assertEquals(Double.doubleToLongBits(value), Double.doubleToLongBits(read));
+        }
+        assertOrderPreserved(values, Double::compare, SortableBytes.DOUBLE::write);
+    }
+
+    @Test
+    public void strings_round_trip_and_sort_by_code_point() {
+        for (String value : STRINGS) {
+            byte[] encoded = encode(SortableBytes::writeString, value);
+            assertEquals(SortableBytes.encodedLength(value), encoded.length);
+            ByteBuffer buffer = ByteBuffer.wrap(encoded);
+            assertEquals(value, SortableBytes.readString(buffer));
+            assertFalse(buffer.hasRemaining());
+        }
+        assertOrderPreserved(List.of(STRINGS), CODE_POINT_ORDER, SortableBytes::writeString);
+    }
+
+    @Test
+    public void strings_sort_before_any_following_component() {
+        SortableBytes.Encoder<Pair<String, Integer>> encoder = SortableBytes.pair(SortableBytes.STRING,
+                SortableBytes.INT);
+        byte[] shorter = encode(encoder::write, pair("a", Integer.MAX_VALUE));
+        byte[] longer = encode(encoder::write, pair("a\0", 0));
+        assertTrue(SortableBytes.compare(shorter, longer) < 0);
+        assertEquals(pair("a", Integer.MAX_VALUE), encoder.read(ByteBuffer.wrap(shorter)));
+        assertEquals(pair("a\0", 0), encoder.read(ByteBuffer.wrap(longer)));
+
+        List<Pair<String, Integer>> values = new ArrayList<>();
+        for (String string : STRINGS) {
+            for (int number : new int[]{Integer.MIN_VALUE, -1, 0, 1, 0xFF, Integer.MAX_VALUE}) {
+                values.add(pair(string, number));
+            }
+        }
+        Comparator<Pair<String, Integer>> order = Comparator.<Pair<String, Integer>, String>comparing(Pair::first,
+                CODE_POINT_ORDER).thenComparing(Pair::second);
+        assertOrderPreserved(values, order, encoder::write);
+        for (Pair<String, Integer> value : values) {
+            assertEquals(value, encoder.read(ByteBuffer.wrap(encode(encoder::write, value))));
+        }
+    }
+
+    @Test
+    public void primitive_pairs_round_trip_and_sort() {
+        List<LongPair> longPairs = new ArrayList<>();
+        List<IntLongPair> intLongPairs = new ArrayList<>();
+        for (long first : new long[]{Long.MIN_VALUE, -1, 0, 1, Long.MAX_VALUE}) {
+            for (long second : new long[]{Long.MIN_VALUE, -1, 0, 1, Long.MAX_VALUE}) {
+                longPairs.add(new LongPair(first, second));
+                intLongPairs.add(new IntLongPair((int) first, second));
+            }
+        }
+        assertOrderPreserved(longPairs, Comparator.comparingLong(LongPair::first).thenComparingLong(LongPair::second),
+                SortableBytes.LONG_PAIR::write);
+        assertOrderPreserved(intLongPairs, Comparator.comparingInt(IntLongPair::first)
+                .thenComparingLong(IntLongPair::second), SortableBytes.INT_LONG_PAIR::write);
+        for (LongPair value : longPairs) {
+            assertEquals(value, SortableBytes.LONG_PAIR.read(ByteBuffer.wrap(encode(SortableBytes.LONG_PAIR::write,
+                    value))));
+        }
+        for (IntLongPair value : intLongPairs) {
+            assertEquals(value, SortableBytes.INT_LONG_PAIR.read(ByteBuffer.wrap(
+                    encode(SortableBytes.INT_LONG_PAIR::write, value))));
+        }
+    }
+}
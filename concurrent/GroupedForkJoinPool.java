@@ -0,0 +1,294 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.vaticle.typedb.common.concurrent;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * An executor made of several smaller fork-join pools, one per CPU group (on Linux, one per NUMA node). Tasks are
+ * submitted to the caller's own group: a worker submits to the group it belongs to, and any other thread is always
+ * routed to the same group. A group only takes on another group's work when it has none of its own: a submission is
+ * redirected to it while it is idle, an idle group is woken to poll queued submissions from a sibling that has a
+ * backlog, and a worker polls a sibling's queued submissions after finishing a task when its own group has nothing
+ * left to do. This keeps the working set of a task tree on one socket wherever possible.
+ *
+ * A stolen task that fails is reported to the uncaught exception handler of the worker that ran it, so its failure
+ * neither escapes into, nor masks the outcome of, the task it was stolen after.
+ *
+ * The JVM offers no way to pin threads to CPUs, so the grouping bounds how many workers share each pool, and the
+ * operating system scheduler remains free to place them.
+ */
+public class GroupedForkJoinPool extends AbstractExecutorService {
+
+    private static final Path NUMA_NODES = Paths.get("/sys/devices/system/node");
+    private static final int MAX_STEALS_PER_TASK = 4;
+    private static final int MAX_STEALS_WHILE_IDLE = 1024;
+
+    private final Group[] groups;
+
+    private GroupedForkJoinPool(String prefix, int[] groupParallelism) {
+        if (groupParallelism.length == 0) throw new IllegalArgumentException("At least one group is required.");
+        groups = new Group[groupParallelism.length];
+        for (int i = 0; i < groups.length; i++) {
+            groups[i] = new Group(i, NamedForkJoinWorkerThreadFactory.create(prefix + "::group" + i), groupParallelism[i]);
+        }
+    }
+
+    public static GroupedForkJoinPool create(String prefix) {
+        return new GroupedForkJoinPool(prefix, detectGroups(Runtime.getRuntime().availableProcessors()));
+    }
+
+    public static GroupedForkJoinPool create(String prefix, int groups, int parallelismPerGroup) {
+        int[] groupParallelism = new int[groups];
+        for (int i = 0; i < groups; i++) groupParallelism[i] = parallelismPerGroup;
+        return new GroupedForkJoinPool(prefix, groupParallelism);
+    }
+
+    public static GroupedForkJoinPool create(String prefix, int[] groupParallelism) {
+        return new GroupedForkJoinPool(prefix, groupParallelism.clone());
+    }
+
+    public int groups() {
+        return groups.length;
+    }
+
+    public ForkJoinPool group(int index) {
+        return groups[index];
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        Group home = callerGroup();
+        Group target = home;
+        if (home.hasQueuedSubmissions()) {
+            Group idle = idleSibling(home);
+            if (idle != null) target = idle;
+        }
+        target.execute(target.wrap(task));
+        if (target.hasQueuedSubmissions()) wakeIdleSibling(target);
+    }
+
+    public <T> T invoke(ForkJoinTask<T> task) {
+        return callerGroup().invoke(task);
+    }
+
+    @Override
+    public void shutdown() {
+        for (Group group : groups) group.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        List<Runnable> pending = new ArrayList<>();
+        for (Group group : groups) pending.addAll(group.shutdownNow());
+        return pending;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        for (Group group : groups) {
+            if (!group.isShutdown()) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        for (Group group : groups) {
+            if (!group.isTerminated()) return false;
+        }
+        return true;
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (Group group : groups) {
+            if (!group.awaitTermination(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) return false;
+        }
+        return true;
+    }
+
+    private Group callerGroup() {
+        Thread thread = Thread.currentThread();
+        if (thread instanceof ForkJoinWorkerThread) {
+            ForkJoinPool pool = ((ForkJoinWorkerThread) thread).getPool();
+            if (pool instanceof Group && ((Group) pool).owner() == this) return (Group) pool;
+        }
+        // external threads are consistently routed to the same group
+        return groups[Math.floorMod(Long.hashCode(thread.getId()), groups.length)];
+    }
+
+    private Group idleSibling(Group group) {
+        for (int i = 1; i < groups.length; i++) {
+            Group sibling = groups[(group.index + i) % groups.length];
+            if (sibling.isIdle()) return sibling;
+        }
+        return null;
+    }
+
+    /**
+     * Have an idle sibling of {@code group}, if there is one, start a worker that takes over queued submissions.
+     */
+    private void wakeIdleSibling(Group group) {
+        Group idle = idleSibling(group);
+        if (idle != null && idle.stealing.compareAndSet(false, true)) {
+            try {
+                idle.execute(idle::stealWhileIdle);
+            } catch (RejectedExecutionException e) {
+                idle.stealing.set(false);
+            }
+        }
+    }
+
+    private ForkJoinTask<?> pollSiblingSubmission(Group group) {
+        for (int i = 1; i < groups.length; i++) {
+            ForkJoinTask<?> task = groups[(group.index + i) % groups.length].pollSubmission();
+            if (task != null) return task;
+        }
+        return null;
+    }
+
+    /**
+     * Read the CPU groups from the NUMA nodes listed under /sys/devices/system/node, falling back to a single group
+     * when there is no such information. Groups are scaled down proportionally if the JVM may use fewer CPUs than
+     * the machine has, for example when running in a container.
+     */
+    static int[] detectGroups(int availableProcessors) {
+        List<Integer> nodeCpus = new ArrayList<>();
+        if (Files.isDirectory(NUMA_NODES)) {
+            try (DirectoryStream<Path> nodes = Files.newDirectoryStream(NUMA_NODES, "node[0-9]*")) {
+                for (Path node : nodes) {
+                    Path cpuList = node.resolve("cpulist");
+                    if (!Files.isReadable(cpuList)) continue;
+                    int cpus = countCpus(new String(Files.readAllBytes(cpuList), StandardCharsets.US_ASCII).trim());
+                    if (cpus > 0) nodeCpus.add(cpus);
+                }
+            } catch (IOException | RuntimeException e) {
+                nodeCpus.clear();
+            }
+        }
+        if (nodeCpus.size() <= 1) return new int[]{availableProcessors};
+
+        int totalCpus = 0;
+        for (int cpus : nodeCpus) totalCpus += cpus;
+        int[] groups = new int[nodeCpus.size()];
+        for (int i = 0; i < groups.length; i++) {
+            groups[i] = Math.max(1, (int) ((long) nodeCpus.get(i) * Math.min(availableProcessors, totalCpus) / totalCpus));
+        }
+        return groups;
+    }
+
+    /**
+     * Count the CPUs in a Linux cpulist, such as "0-15,32-47".
+     */
+    static int countCpus(String cpuList) {
+        if (cpuList.isEmpty()) return 0;
+        int count = 0;
+        for (String range : cpuList.split(",")) {
+            int dash = range.indexOf('-');
+            if (dash < 0) count++;
+            else count += Integer.parseInt(range.substring(dash + 1).trim()) - Integer.parseInt(range.substring(0, dash).trim()) + 1;
+        }
+        return count;
+    }
+
+    private class Group extends ForkJoinPool {
+
+        private final int index;
+        // set while a task that steals on this group's behalf is queued or running
+        private final AtomicBoolean stealing = new AtomicBoolean(false);
+
+        private Group(int index, NamedForkJoinWorkerThreadFactory threadFactory, int parallelism) {
+            super(parallelism, threadFactory, null, false);
+            this.index = index;
+        }
+
+        private GroupedForkJoinPool owner() {
+            return GroupedForkJoinPool.this;
+        }
+
+        private boolean isIdle() {
+            return getActiveThreadCount() == 0 && !hasQueuedSubmissions();
+        }
+
+        @Override
+        protected ForkJoinTask<?> pollSubmission() {
+            return super.pollSubmission();
+        }
+
+        private Runnable wrap(Runnable task) {
+            return () -> {
+                try {
+                    task.run();
+                } finally {
+                    stealFromSiblings();
+                }
+            };
+        }
+
+        private void stealFromSiblings() {
+            stealFromSiblings(MAX_STEALS_PER_TASK);
+        }
+
+        private void stealWhileIdle() {
+            try {
+                stealFromSiblings(MAX_STEALS_WHILE_IDLE);
+            } finally {
+                stealing.set(false);
+            }
+        }
+
+        private void stealFromSiblings(int maxSteals) {
+            // only steal on behalf of our own workers, so that stolen tasks do not steal again in turn
+            Thread thread = Thread.currentThread();
+            if (groups.length == 1 || !(thread instanceof ForkJoinWorkerThread)
+                    || ((ForkJoinWorkerThread) thread).getPool() != this) return;
+            for (int i = 0; i < maxSteals && !hasQueuedSubmissions() && getQueuedTaskCount() == 0; i++) {
+                ForkJoinTask<?> stolen = pollSiblingSubmission(this);
+                if (stolen == null) return;
+                runStolen(thread, stolen);
+            }
+        }
+
+        private void runStolen(Thread thread, ForkJoinTask<?> stolen) {
+            try {
+                stolen.quietlyInvoke();
+            } catch (Throwable e) {
+                // tasks from execute() rethrow their failure, which belongs to them and not to the stealing task
+                Thread.UncaughtExceptionHandler handler = thread.getUncaughtExceptionHandler();
+                if (handler != null) handler.uncaughtException(thread, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.vaticle.typedb.common.concurrent;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Builds executors on top of the named thread factories that report their state to {@link PoolMetrics} under the
+ * factory's prefix. Pools are registered on creation and unregistered once they have terminated. Creating a pool with
+ * the prefix of another that has not terminated throws {@link IllegalArgumentException}.
+ */
+public class InstrumentedExecutors {
+
+    public static InstrumentedThreadPoolExecutor fixedThreadPool(String prefix, int threads) {
+        return threadPool(prefix, threads, threads, 0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>());
+    }
+
+    public static InstrumentedThreadPoolExecutor threadPool(String prefix, int corePoolSize, int maximumPoolSize,
+                                                            long keepAliveTime, TimeUnit unit,
+                                                            BlockingQueue<Runnable> queue) {
+        InstrumentedThreadPoolExecutor executor = new InstrumentedThreadPoolExecutor(
+                NamedThreadFactory.create(prefix), corePoolSize, maximumPoolSize, keepAliveTime, unit, queue,
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+        register(executor);
+        return executor;
+    }
+
+    public static InstrumentedForkJoinPool forkJoinPool(String prefix) {
+        return forkJoinPool(prefix, Runtime.getRuntime().availableProcessors());
+    }
+
+    public static InstrumentedForkJoinPool forkJoinPool(String prefix, int parallelism) {
+        InstrumentedForkJoinPool pool = new InstrumentedForkJoinPool(
+                NamedForkJoinWorkerThreadFactory.create(prefix), parallelism
+        );
+        register(pool);
+        return pool;
+    }
+
+    private static <POOL extends ExecutorService & PoolMetrics.Source> void register(POOL pool) {
+        try {
+            PoolMetrics.register(pool);
+        } catch (IllegalArgumentException e) {
+            pool.shutdownNow();
+            throw e;
+        }
+    }
+
+    /**
+     * Task latency is measured from the moment a worker picks a task up until it finishes running it.
+     */
+    public static class InstrumentedThreadPoolExecutor extends ThreadPoolExecutor implements PoolMetrics.Source {
+
+        private final String prefix;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final ThreadLocal<long[]> taskStart = ThreadLocal.withInitial(() -> new long[1]);
+        private final AtomicInteger activeWorkers = new AtomicInteger(0);
+        private final LongAdder completedTasks = new LongAdder();
+        private final LongAdder rejectedTasks;
+
+        private InstrumentedThreadPoolExecutor(NamedThreadFactory threadFactory, int corePoolSize,
+                                               int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                                               BlockingQueue<Runnable> queue, RejectedExecutionHandler handler) {
+            this(threadFactory, corePoolSize, maximumPoolSize, keepAliveTime, unit, queue, handler, new LongAdder());
+        }
+
+        private InstrumentedThreadPoolExecutor(NamedThreadFactory threadFactory, int corePoolSize,
+                                               int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                                               BlockingQueue<Runnable> queue, RejectedExecutionHandler handler,
+                                               LongAdder rejectedTasks) {
+            super(corePoolSize, maximumPoolSize, keepAliveTime, unit, queue, threadFactory, (runnable, executor) -> {
+                rejectedTasks.increment();
+                handler.rejectedExecution(runnable, executor);
+            });
+            this.prefix = threadFactory.prefix();
+            this.rejectedTasks = rejectedTasks;
+        }
+
+        @Override
+        public String prefix() {
+            return prefix;
+        }
+
+        @Override
+        protected void beforeExecute(Thread thread, Runnable runnable) {
+            activeWorkers.incrementAndGet();
+            taskStart.get()[0] = System.nanoTime();
+            super.beforeExecute(thread, runnable);
+        }
+
+        @Override
+        protected void afterExecute(Runnable runnable, Throwable throwable) {
+            super.afterExecute(runnable, throwable);
+            latency.record(System.nanoTime() - taskStart.get()[0]);
+            completedTasks.increment();
+            activeWorkers.decrementAndGet();
+        }
+
+        @Override
+        protected void terminated() {
+            super.terminated();
+            PoolMetrics.unregister(this);
+        }
+
+        @Override
+        public PoolMetrics.Snapshot snapshot() {
+            int active = activeWorkers.get();
+            int poolSize = getPoolSize();
+            return new PoolMetrics.Snapshot(
+                    prefix, poolSize, active, Math.max(0, poolSize - active), getQueue().size(), 0,
+                    completedTasks.sum(), rejectedTasks.sum(), latency.snapshot()
+            );
+        }
+    }
+
+    /**
+     * Task latency is measured for every task submitted to the pool from outside it, from the moment a worker starts
+     * running it until it finishes. A {@link ForkJoinTask} submitted from outside is run inside a timed task, which
+     * the submitting thread could not have helped to run anyway. A {@link ForkJoinTask} submitted from one of the
+     * pool's own workers is passed through untimed, like subtasks it forks, so that a worker joining it can still run
+     * it rather than block.
+     */
+    public static class InstrumentedForkJoinPool extends ForkJoinPool implements PoolMetrics.Source {
+
+        private final String prefix;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder completedTasks = new LongAdder();
+        private final LongAdder rejectedTasks = new LongAdder();
+
+        private InstrumentedForkJoinPool(NamedForkJoinWorkerThreadFactory threadFactory, int parallelism) {
+            super(parallelism, threadFactory, null, false);
+            this.prefix = threadFactory.prefix();
+        }
+
+        @Override
+        public String prefix() {
+            return prefix;
+        }
+
+        @Override
+        public void execute(Runnable task) {
+            if (task instanceof ForkJoinTask<?>) {
+                execute((ForkJoinTask<?>) task);
+                return;
+            }
+            try {
+                super.execute(timed(task));
+            } catch (RejectedExecutionException e) {
+                rejectedTasks.increment();
+                throw e;
+            }
+        }
+
+        @Override
+        public void execute(ForkJoinTask<?> task) {
+            try {
+                super.execute(inWorkerThread() ? task : timed(task));
+            } catch (RejectedExecutionException e) {
+                rejectedTasks.increment();
+                throw e;
+            }
+        }
+
+        @Override
+        public ForkJoinTask<?> submit(Runnable task) {
+            if (task instanceof ForkJoinTask<?>) return submit((ForkJoinTask<?>) task);
+            try {
+                return super.submit(timed(task));
+            } catch (RejectedExecutionException e) {
+                rejectedTasks.increment();
+                throw e;
+            }
+        }
+
+        @Override
+        public <T> ForkJoinTask<T> submit(Runnable task, T result) {
+            try {
+                return super.submit(timed(task), result);
+            } catch (RejectedExecutionException e) {
+                rejectedTasks.increment();
+                throw e;
+            }
+        }
+
+        @Override
+        public <T> ForkJoinTask<T> submit(Callable<T> task) {
+            try {
+                return super.submit(timed(task));
+            } catch (RejectedExecutionException e) {
+                rejectedTasks.increment();
+                throw e;
+            }
+        }
+
+        @Override
+        public <T> ForkJoinTask<T> submit(ForkJoinTask<T> task) {
+            execute(task);
+            return task;
+        }
+
+        @Override
+        public <T> T invoke(ForkJoinTask<T> task) {
+            if (inWorkerThread()) return super.invoke(task);
+            execute(task);
+            return task.join();
+        }
+
+        @Override
+        public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks) {
+            List<Callable<T>> timedTasks = new ArrayList<>(tasks.size());
+            for (Callable<T> task : tasks) timedTasks.add(timed(task));
+            try {
+                return super.invokeAll(timedTasks);
+            } catch (RejectedExecutionException e) {
+                rejectedTasks.increment();
+                throw e;
+            }
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            List<Runnable> pending = super.shutdownNow();
+            if (isTerminated()) PoolMetrics.unregister(this);
+            return pending;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+            boolean terminated = super.awaitTermination(timeout, unit);
+            if (terminated) PoolMetrics.unregister(this);
+            return terminated;
+        }
+
+        @Override
+        public PoolMetrics.Snapshot snapshot() {
+            int poolSize = getPoolSize();
+            return new PoolMetrics.Snapshot(
+                    prefix, poolSize, getActiveThreadCount(), Math.max(0, poolSize - getRunningThreadCount()),
+                    getQueuedSubmissionCount() + getQueuedTaskCount(), getStealCount(), completedTasks.sum(),
+                    rejectedTasks.sum(), latency.snapshot()
+            );
+        }
+
+        private boolean inWorkerThread() {
+            return ForkJoinTask.getPool() == this;
+        }
+
+        private ForkJoinTask<?> timed(ForkJoinTask<?> task) {
+            return ForkJoinTask.adapt(() -> {
+                long start = System.nanoTime();
+                try {
+                    task.quietlyInvoke();
+                } finally {
+                    latency.record(System.nanoTime() - start);
+                    completedTasks.increment();
+                }
+            });
+        }
+
+        private Runnable timed(Runnable task) {
+            return () -> {
+                long start = System.nanoTime();
+                try {
+                    task.run();
+                } finally {
+                    latency.record(System.nanoTime() - start);
+                    completedTasks.increment();
+                }
+            };
+        }
+
+        private <T> Callable<T> timed(Callable<T> task) {
+            return () -> {
+                long start = System.nanoTime();
+                try {
+                    return task.call();
+                } finally {
+                    latency.record(System.nanoTime() - start);
+                    completedTasks.increment();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.vaticle.typedb.common.concurrent;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of durations in nanoseconds, with one bucket per power of two. Each bucket is a
+ * {@link LongAdder}, so workers recording similar durations at once spread their increments over separate cells
+ * rather than contending on one counter. A snapshot sums 64 counters.
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKETS = Long.SIZE;
+
+    private final LongAdder[] counts = new LongAdder[BUCKETS];
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKETS; i++) counts[i] = new LongAdder();
+    }
+
+    public void record(long nanos) {
+        counts[bucket(nanos)].increment();
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) copy[i] = counts[i].sum();
+        return new Snapshot(copy);
+    }
+
+    private static int bucket(long nanos) {
+        return nanos <= 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(nanos) - 1;
+    }
+
+    public static class Snapshot {
+
+        private final long[] counts;
+        private final long total;
+
+        private Snapshot(long[] counts) {
+            this.counts = counts;
+            long total = 0;
+            for (long count : counts) total += count;
+            this.total = total;
+        }
+
+        public long count() {
+            return total;
+        }
+
+        /**
+         * @return the number of recorded durations in [2^bucket, 2^(bucket+1)) nanoseconds
+         */
+        public long count(int bucket) {
+            return counts[bucket];
+        }
+
+        public int buckets() {
+            return counts.length;
+        }
+
+        /**
+         * @return an upper bound, in nanoseconds, on the given percentile (0 to 100) of recorded durations
+         */
+        public long percentileNanos(double percentile) {
+            if (total == 0) return 0;
+            long rank = (long) Math.ceil(total * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank && seen > 0) return i == Long.SIZE - 1 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+            }
+            return Long.MAX_VALUE;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("count: %d, p50: %dns, p99: %dns", total, percentileNanos(50), percentileNanos(99));
+        }
+    }
+}
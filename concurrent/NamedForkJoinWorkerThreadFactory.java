@@ -43,10 +43,19 @@ public class NamedForkJoinWorkerThreadFactory implements ForkJoinPool.ForkJoinWo
         return new NamedForkJoinWorkerThreadFactory(clazz, function);
     }
 
+    public String prefix() {
+        return prefix.substring(0, prefix.length() - 2);
+    }
+
+    public long threadsCreated() {
+        return index.get();
+    }
+
     @Override
     public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
         final ForkJoinWorkerThread worker = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
         worker.setName(prefix + worker.getPoolIndex());
+        index.getAndIncrement();
         return worker;
     }
 }
@@ -42,10 +42,22 @@ public class NamedThreadFactory implements ThreadFactory {
         return new NamedThreadFactory(clazz, function);
     }
 
+    public String prefix() {
+        return prefix.substring(0, prefix.length() - 2);
+    }
+
+    public long threadsCreated() {
+        return index.get();
+    }
+
     @Override
     public Thread newThread(Runnable runnable) {
         Thread thread = new Thread(runnable);
-        thread.setName(prefix + index.getAndIncrement());
+        thread.setName(nextName());
         return thread;
     }
+
+    protected String nextName() {
+        return prefix + index.getAndIncrement();
+    }
 }
@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.vaticle.typedb.common.concurrent;
+
+import com.vaticle.typedb.common.util.Java;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates virtual threads when the running JVM supports them (Java 21+), and platform threads otherwise. Threads are
+ * named {@code prefix::index}, exactly as by the {@link NamedThreadFactory} this extends.
+ */
+public class NamedVirtualThreadFactory extends NamedThreadFactory {
+
+    private static final int VIRTUAL_THREAD_MIN_VERSION = 21;
+    // we compile against Java 11, so the virtual thread factory can only be reached reflectively
+    private static final ThreadFactory VIRTUAL_THREAD_FACTORY = virtualThreadFactory();
+
+    private final boolean virtual;
+
+    public NamedVirtualThreadFactory(String prefix) {
+        super(prefix);
+        this.virtual = VIRTUAL_THREAD_FACTORY != null;
+    }
+
+    public NamedVirtualThreadFactory(Class<?> clazz, String function) {
+        this(clazz.getSimpleName() + "::" + function);
+    }
+
+    public static NamedVirtualThreadFactory create(String prefix) {
+        return new NamedVirtualThreadFactory(prefix);
+    }
+
+    public static NamedVirtualThreadFactory create(Class<?> clazz, String function) {
+        return new NamedVirtualThreadFactory(clazz, function);
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+        if (!virtual) return super.newThread(runnable);
+        Thread thread = VIRTUAL_THREAD_FACTORY.newThread(runnable);
+        thread.setName(nextName());
+        return thread;
+    }
+
+    private static ThreadFactory virtualThreadFactory() {
+        if (Java.getMajorVersion() < VIRTUAL_THREAD_MIN_VERSION) return null;
+        try {
+            // Thread.ofVirtual().factory()
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.vaticle.typedb.common.concurrent;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A registry of instrumented pools, keyed by their thread name prefix. Taking a snapshot only reads counters the
+ * pools already maintain, so it is cheap enough to poll continuously. A pool stays registered until it has terminated,
+ * so that a pool still running its last tasks after a shutdown is still reported.
+ */
+public class PoolMetrics {
+
+    private static final Map<String, Source> pools = new ConcurrentHashMap<>();
+
+    public interface Source {
+
+        String prefix();
+
+        Snapshot snapshot();
+
+        boolean isTerminated();
+    }
+
+    /**
+     * Register a pool under its prefix, which must not be in use by another pool that has not yet terminated.
+     */
+    public static void register(Source pool) {
+        pools.compute(pool.prefix(), (prefix, registered) -> {
+            if (registered != null && registered != pool && !registered.isTerminated()) {
+                throw new IllegalArgumentException(String.format("A pool with prefix '%s' is already registered.",
+                        prefix));
+            }
+            return pool;
+        });
+    }
+
+    public static void unregister(Source pool) {
+        pools.remove(pool.prefix(), pool);
+    }
+
+    public static Snapshot snapshot(String prefix) {
+        Source pool = pools.get(prefix);
+        if (pool == null) {
+            return null;
+        } else if (pool.isTerminated()) {
+            unregister(pool);
+            return null;
+        }
+        return pool.snapshot();
+    }
+
+    public static Map<String, Snapshot> snapshot() {
+        Map<String, Snapshot> snapshots = new TreeMap<>();
+        pools.forEach((prefix, pool) -> {
+            if (pool.isTerminated()) unregister(pool);
+            else snapshots.put(prefix, pool.snapshot());
+        });
+        return snapshots;
+    }
+
+    public static class Snapshot {
+
+        private final String prefix;
+        private final int poolSize;
+        private final int activeWorkers;
+        private final int parkedWorkers;
+        private final long queueDepth;
+        private final long stealCount;
+        private final long completedTasks;
+        private final long rejectedTasks;
+        private final LatencyHistogram.Snapshot taskLatency;
+
+        Snapshot(String prefix, int poolSize, int activeWorkers, int parkedWorkers, long queueDepth, long stealCount,
+                 long completedTasks, long rejectedTasks, LatencyHistogram.Snapshot taskLatency) {
+            this.prefix = prefix;
+            this.poolSize = poolSize;
+            this.activeWorkers = activeWorkers;
+            this.parkedWorkers = parkedWorkers;
+            this.queueDepth = queueDepth;
+            this.stealCount = stealCount;
+            this.completedTasks = completedTasks;
+            this.rejectedTasks = rejectedTasks;
+            this.taskLatency = taskLatency;
+        }
+
+        public String prefix() {
+            return prefix;
+        }
+
+        public int poolSize() {
+            return poolSize;
+        }
+
+        public int activeWorkers() {
+            return activeWorkers;
+        }
+
+        public int parkedWorkers() {
+            return parkedWorkers;
+        }
+
+        public long queueDepth() {
+            return queueDepth;
+        }
+
+        /**
+         * @return the number of tasks stolen between workers, always 0 for pools that do not steal work
+         */
+        public long stealCount() {
+            return stealCount;
+        }
+
+        public long completedTasks() {
+            return completedTasks;
+        }
+
+        public long rejectedTasks() {
+            return rejectedTasks;
+        }
+
+        public LatencyHistogram.Snapshot taskLatency() {
+            return taskLatency;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "%s: {pool: %d, active: %d, parked: %d, queued: %d, steals: %d, completed: %d, rejected: %d, latency: {%s}}",
+                    prefix, poolSize, activeWorkers, parkedWorkers, queueDepth, stealCount, completedTasks,
+                    rejectedTasks, taskLatency
+            );
+        }
+    }
+}
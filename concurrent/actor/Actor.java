@@ -0,0 +1,141 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.vaticle.typedb.common.concurrent.actor;
+
+import com.vaticle.typedb.common.concurrent.actor.eventloop.EventLoop;
+import com.vaticle.typedb.common.concurrent.actor.eventloop.EventLoopGroup;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * An actor owns its state exclusively and is only ever accessed through its {@link Driver}. Every message sent
+ * through the driver runs on the single event loop the actor is bound to, so actor state needs no locking.
+ */
+public abstract class Actor<ACTOR extends Actor<ACTOR>> {
+
+    private final Driver<ACTOR> driver;
+    private final String name;
+
+    protected Actor(Driver<ACTOR> driver, String name) {
+        this.driver = driver;
+        this.name = name;
+    }
+
+    /**
+     * Create an actor on the event loop it is bound to. Any message sent through the driver, including those the
+     * actor sends itself from its constructor, is queued behind the construction, so it only runs once the driver
+     * holds the actor.
+     *
+     * A caller that is not on any event loop waits for the actor to be constructed, and sees any exception its
+     * constructor throws. A caller on another event loop never blocks, since two loops creating actors on each other
+     * would deadlock: the driver is returned straight away, and a failed construction is reported to the uncaught
+     * exception handler of the actor's event loop thread.
+     */
+    public static <NEW_ACTOR extends Actor<NEW_ACTOR>> Driver<NEW_ACTOR> driver(
+            Function<Driver<NEW_ACTOR>, NEW_ACTOR> actorFn, EventLoopGroup eventLoopGroup) {
+        Driver<NEW_ACTOR> driver = new Driver<>(eventLoopGroup.nextEventLoop());
+        if (driver.inEventLoopThread()) {
+            driver.actor = actorFn.apply(driver);
+            return driver;
+        } else if (EventLoop.inAnyEventLoopThread()) {
+            driver.eventLoop.submit(() -> driver.actor = actorFn.apply(driver), Actor::uncaught);
+            return driver;
+        }
+        CompletableFuture<Void> constructed = new CompletableFuture<>();
+        driver.eventLoop.submit(() -> {
+            driver.actor = actorFn.apply(driver);
+            constructed.complete(null);
+        }, constructed::completeExceptionally);
+        try {
+            constructed.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) throw (RuntimeException) e.getCause();
+            else if (e.getCause() instanceof Error) throw (Error) e.getCause();
+            throw e;
+        }
+        return driver;
+    }
+
+    private static void uncaught(Throwable e) {
+        Thread thread = Thread.currentThread();
+        thread.getUncaughtExceptionHandler().uncaughtException(thread, e);
+    }
+
+    protected Driver<ACTOR> driver() {
+        return driver;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    protected abstract void exception(Throwable e);
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    public static class Driver<ACTOR extends Actor<ACTOR>> {
+
+        private final EventLoop eventLoop;
+        // written once, on the event loop thread, before any message to the actor can run there
+        private ACTOR actor;
+
+        private Driver(EventLoop eventLoop) {
+            this.eventLoop = eventLoop;
+        }
+
+        public String name() {
+            return actor.name();
+        }
+
+        public void execute(Consumer<ACTOR> consumer) {
+            eventLoop.submit(() -> consumer.accept(actor), this::exception);
+        }
+
+        public <ANSWER> CompletableFuture<ANSWER> compute(Function<ACTOR, ANSWER> function) {
+            CompletableFuture<ANSWER> future = new CompletableFuture<>();
+            eventLoop.submit(() -> future.complete(function.apply(actor)), e -> {
+                future.completeExceptionally(e);
+                exception(e);
+            });
+            return future;
+        }
+
+        public EventLoop.Cancellable schedule(Consumer<ACTOR> consumer, long scheduleMillis) {
+            return eventLoop.schedule(scheduleMillis, () -> consumer.accept(actor), this::exception);
+        }
+
+        public EventLoop.Cancellable scheduleAfter(Consumer<ACTOR> consumer, long delayMillis) {
+            return schedule(consumer, eventLoop.time() + delayMillis);
+        }
+
+        public boolean inEventLoopThread() {
+            return eventLoop.inEventLoopThread();
+        }
+
+        private void exception(Throwable e) {
+            actor.exception(e);
+        }
+    }
+}
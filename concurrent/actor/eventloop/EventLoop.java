@@ -0,0 +1,285 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.vaticle.typedb.common.concurrent.actor.eventloop;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * A single-threaded executor. Every job submitted to an event loop runs on the same thread, one after another,
+ * so state that is only ever touched from within the loop needs no locking.
+ *
+ * Jobs are passed to the loop through a bounded array queue and drained in batches; the loop thread only parks once
+ * the queue is empty, and producers only unpark it if it is actually parked. Scheduled jobs are kept in a timer
+ * wheel on the loop thread itself, and an idle loop parks until the earliest of them is due.
+ *
+ * Once stopped, an event loop rejects further jobs with an {@link IllegalStateException}. Jobs that were accepted
+ * but had not run when the loop stopped, including scheduled jobs, are failed through their error handlers with the
+ * same exception instead of being dropped. Every accepted job is therefore either run or failed, exactly once.
+ */
+public class EventLoop {
+
+    private enum State {READY, RUNNING, STOPPED}
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 1 << 16;
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    public static final long DEFAULT_TICK_MILLIS = 1;
+    public static final int DEFAULT_WHEEL_SIZE = 512;
+
+    private static final long FULL_QUEUE_BACKOFF_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+    private static final ThreadLocal<EventLoop> CURRENT = new ThreadLocal<>();
+
+    private final MpscArrayQueue<Job> jobs;
+    // only accessed from the event loop thread, when it submits to itself while the queue is full
+    private final ArrayDeque<Job> overflowJobs = new ArrayDeque<>();
+    private final TimerWheel scheduledJobs;
+    private final Consumer<Job> runJob = Job::run;
+    private final Consumer<Job> failJob = job -> job.fail(stopped());
+    private final LongSupplier clock;
+    private final int batchSize;
+    private final Thread thread;
+    private volatile boolean parked;
+    private final AtomicReference<State> state;
+
+    public EventLoop(ThreadFactory threadFactory) {
+        this(threadFactory, System::currentTimeMillis);
+    }
+
+    public EventLoop(ThreadFactory threadFactory, LongSupplier clock) {
+        this(threadFactory, clock, DEFAULT_QUEUE_CAPACITY, DEFAULT_BATCH_SIZE, DEFAULT_TICK_MILLIS, DEFAULT_WHEEL_SIZE);
+    }
+
+    public EventLoop(ThreadFactory threadFactory, LongSupplier clock, int queueCapacity, int batchSize,
+                     long tickMillis, int wheelSize) {
+        if (batchSize <= 0) throw new IllegalArgumentException("EventLoop batch size must be positive.");
+        if (tickMillis <= 0) throw new IllegalArgumentException("EventLoop tick duration must be positive.");
+        this.clock = clock;
+        this.jobs = new MpscArrayQueue<>(queueCapacity);
+        this.batchSize = batchSize;
+        this.scheduledJobs = new TimerWheel(clock.getAsLong(), tickMillis, wheelSize);
+        this.parked = false;
+        this.state = new AtomicReference<>(State.READY);
+        this.thread = threadFactory.newThread(this::loop);
+        this.thread.start();
+    }
+
+    public long time() {
+        return clock.getAsLong();
+    }
+
+    public boolean inEventLoopThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * @return whether the calling thread is the thread of any event loop, which must therefore never block
+     */
+    public static boolean inAnyEventLoopThread() {
+        return CURRENT.get() != null;
+    }
+
+    public void submit(Runnable job, Consumer<Throwable> errorHandler) {
+        submit(new Job(job, errorHandler));
+    }
+
+    public Cancellable schedule(long timeMillis, Runnable job, Consumer<Throwable> errorHandler) {
+        ScheduledJob scheduledJob = new ScheduledJob(timeMillis, job, errorHandler);
+        if (inEventLoopThread()) scheduledJobs.schedule(scheduledJob);
+        else submit(new Job(() -> scheduledJobs.schedule(scheduledJob), errorHandler));
+        return scheduledJob;
+    }
+
+    public void await() throws InterruptedException {
+        thread.join();
+    }
+
+    public void stop() {
+        state.set(State.STOPPED);
+        wakeUp();
+    }
+
+    private void submit(Job job) {
+        if (state.get() == State.STOPPED) throw stopped();
+        if (inEventLoopThread() && !overflowJobs.isEmpty()) {
+            // preserve ordering behind jobs that have already overflowed
+            overflowJobs.addLast(job);
+            return;
+        }
+        if (!jobs.offer(job)) {
+            if (inEventLoopThread()) {
+                // the loop cannot wait for itself to drain the queue
+                overflowJobs.addLast(job);
+                return;
+            }
+            do {
+                // a stopped loop never drains its queue again
+                if (state.get() == State.STOPPED) throw stopped();
+                wakeUp();
+                LockSupport.parkNanos(FULL_QUEUE_BACKOFF_NANOS);
+            } while (!jobs.offer(job));
+        }
+        if (state.get() == State.STOPPED) {
+            // the loop may have stopped, and drained its queue for the last time, before the job was offered; if the
+            // job has neither run nor been failed yet, reject it here instead
+            if (job.claim()) throw stopped();
+            return;
+        }
+        if (parked) wakeUp();
+    }
+
+    private static IllegalStateException stopped() {
+        return new IllegalStateException("The event loop has been stopped.");
+    }
+
+    private void wakeUp() {
+        LockSupport.unpark(thread);
+    }
+
+    private void loop() {
+        CURRENT.set(this);
+        // the loop may have been stopped before its thread got to run
+        if (state.compareAndSet(State.READY, State.RUNNING)) {
+            while (state.get() == State.RUNNING) {
+                int ran = jobs.drain(runJob, batchSize);
+                ran += runOverflowJobs();
+                if (!scheduledJobs.isEmpty()) scheduledJobs.advance(time(), runJob);
+                if (ran == 0) park();
+            }
+        }
+        failRemainingJobs();
+    }
+
+    private void failRemainingJobs() {
+        jobs.drain(failJob, Integer.MAX_VALUE);
+        Job job;
+        while ((job = overflowJobs.pollFirst()) != null) failJob.accept(job);
+        scheduledJobs.drain(failJob);
+    }
+
+    private int runOverflowJobs() {
+        int ran = 0;
+        Job job;
+        while (ran < batchSize && (job = overflowJobs.pollFirst()) != null) {
+            job.run();
+            ran++;
+        }
+        return ran;
+    }
+
+    private void park() {
+        parked = true;
+        // re-check after publishing the parked flag, so that a concurrent submit either sees the flag or is seen here
+        if (jobs.isEmpty() && overflowJobs.isEmpty() && state.get() == State.RUNNING) {
+            long nextExpiry = scheduledJobs.nextExpiry();
+            if (nextExpiry == Long.MAX_VALUE) {
+                LockSupport.park(this);
+            } else {
+                long delayMillis = nextExpiry - time();
+                if (delayMillis > 0) LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(delayMillis));
+            }
+        }
+        parked = false;
+    }
+
+    public interface Cancellable {
+
+        void cancel();
+
+        boolean isCancelled();
+    }
+
+    static class Job {
+
+        private static final AtomicIntegerFieldUpdater<Job> CLAIMED =
+                AtomicIntegerFieldUpdater.newUpdater(Job.class, "claimed");
+
+        private final Runnable runnable;
+        private final Consumer<Throwable> errorHandler;
+        // set once by whichever of running, failing or rejecting the job happens first
+        private volatile int claimed;
+
+        private Job(Runnable runnable, Consumer<Throwable> errorHandler) {
+            this.runnable = runnable;
+            this.errorHandler = errorHandler;
+            this.claimed = 0;
+        }
+
+        boolean claim() {
+            return CLAIMED.compareAndSet(this, 0, 1);
+        }
+
+        void run() {
+            if (!claim()) return;
+            try {
+                runnable.run();
+            } catch (Throwable e) {
+                handle(e);
+            }
+        }
+
+        void fail(Throwable e) {
+            if (claim()) handle(e);
+        }
+
+        private void handle(Throwable e) {
+            try {
+                errorHandler.accept(e);
+            } catch (Throwable handlerError) {
+                // a failing error handler must not take the event loop thread down with it
+                handlerError.addSuppressed(e);
+                Thread thread = Thread.currentThread();
+                thread.getUncaughtExceptionHandler().uncaughtException(thread, handlerError);
+            }
+        }
+    }
+
+    static class ScheduledJob extends Job implements Cancellable {
+
+        private final long time;
+        private volatile boolean cancelled;
+        // intrusive link within a timer wheel bucket, only accessed from the event loop thread
+        ScheduledJob next;
+
+        private ScheduledJob(long time, Runnable runnable, Consumer<Throwable> errorHandler) {
+            super(runnable, errorHandler);
+            this.time = time;
+            this.cancelled = false;
+        }
+
+        long time() {
+            return time;
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+}
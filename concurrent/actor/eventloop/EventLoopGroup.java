@@ -0,0 +1,70 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.vaticle.typedb.common.concurrent.actor.eventloop;
+
+import com.vaticle.typedb.common.concurrent.NamedThreadFactory;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * A fixed set of event loops, handed out round-robin so that actors are spread evenly across threads.
+ */
+public class EventLoopGroup {
+
+    private final EventLoop[] eventLoops;
+    private final AtomicInteger nextIndex = new AtomicInteger(0);
+
+    public EventLoopGroup(int size, String prefix) {
+        this(size, NamedThreadFactory.create(prefix), System::currentTimeMillis);
+    }
+
+    public EventLoopGroup(int size, ThreadFactory threadFactory, LongSupplier clock) {
+        if (size <= 0) throw new IllegalArgumentException("EventLoopGroup size must be positive.");
+        eventLoops = new EventLoop[size];
+        for (int i = 0; i < size; i++) {
+            eventLoops[i] = new EventLoop(threadFactory, clock);
+        }
+    }
+
+    public static EventLoopGroup create(String prefix) {
+        return new EventLoopGroup(Runtime.getRuntime().availableProcessors(), prefix);
+    }
+
+    public int size() {
+        return eventLoops.length;
+    }
+
+    public EventLoop nextEventLoop() {
+        return eventLoops[Math.floorMod(nextIndex.getAndIncrement(), eventLoops.length)];
+    }
+
+    public void await() throws InterruptedException {
+        for (EventLoop eventLoop : eventLoops) {
+            eventLoop.await();
+        }
+    }
+
+    public void stop() {
+        for (EventLoop eventLoop : eventLoops) {
+            eventLoop.stop();
+        }
+    }
+}
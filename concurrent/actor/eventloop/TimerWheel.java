@@ -0,0 +1,158 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.vaticle.typedb.common.concurrent.actor.eventloop;
+
+import java.util.function.Consumer;
+
+/**
+ * A hashed timer wheel owned by a single event loop thread. Each bucket is an intrusive list of scheduled jobs, so
+ * scheduling allocates nothing beyond the job itself, and both scheduling and expiry are O(1) per job. Jobs that
+ * hash to a bucket but are due in a later revolution of the wheel stay in the bucket until their deadline passes.
+ */
+class TimerWheel {
+
+    private final EventLoop.ScheduledJob[] buckets;
+    private final int mask;
+    private final long tickMillis;
+    private final long startMillis;
+    private long currentTick;
+    private int size;
+
+    TimerWheel(long startMillis, long tickMillis, int wheelSize) {
+        int bucketCount = Integer.highestOneBit(Math.max(2, wheelSize) - 1) << 1;
+        this.buckets = new EventLoop.ScheduledJob[bucketCount];
+        this.mask = bucketCount - 1;
+        this.tickMillis = tickMillis;
+        this.startMillis = startMillis;
+        this.currentTick = 0;
+        this.size = 0;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Find when the loop next needs to wake up, by walking at most one revolution of the wheel from the current tick.
+     * Cancelled jobs met on the way are dropped, so a wheel holding only cancelled jobs empties rather than waking
+     * the loop.
+     *
+     * @return the deadline of the earliest job due within the next revolution, the start of the following revolution
+     * if every job is further out, or {@link Long#MAX_VALUE} if there are no jobs
+     */
+    long nextExpiry() {
+        for (long tick = currentTick; tick <= currentTick + mask && size > 0; tick++) {
+            long earliest = Long.MAX_VALUE;
+            int bucket = (int) tick & mask;
+            EventLoop.ScheduledJob previous = null;
+            EventLoop.ScheduledJob job = buckets[bucket];
+            while (job != null) {
+                EventLoop.ScheduledJob next = job.next;
+                if (job.isCancelled()) {
+                    if (previous == null) buckets[bucket] = next;
+                    else previous.next = next;
+                    job.next = null;
+                    size--;
+                } else {
+                    if (tickOf(job.time()) <= tick) earliest = Math.min(earliest, job.time());
+                    previous = job;
+                }
+                job = next;
+            }
+            if (earliest != Long.MAX_VALUE) return earliest;
+        }
+        return size == 0 ? Long.MAX_VALUE : startMillis + (currentTick + mask + 1) * tickMillis;
+    }
+
+    void schedule(EventLoop.ScheduledJob job) {
+        // jobs already due are placed in the current bucket so they expire on the next advance
+        long tick = Math.max(currentTick, tickOf(job.time()));
+        int bucket = (int) tick & mask;
+        job.next = buckets[bucket];
+        buckets[bucket] = job;
+        size++;
+    }
+
+    /**
+     * Expire every job whose deadline is at or before {@code nowMillis}, passing each to {@code expired}. Expired jobs
+     * may schedule further jobs from within {@code expired}.
+     */
+    void advance(long nowMillis, Consumer<? super EventLoop.ScheduledJob> expired) {
+        long targetTick = tickOf(nowMillis);
+        if (targetTick < currentTick) return;
+        // after a full revolution every bucket has been visited, so there is no need to walk further
+        long tick = Math.max(currentTick, targetTick - mask);
+        for (; tick <= targetTick && size > 0; tick++) {
+            currentTick = tick;
+            EventLoop.ScheduledJob due = unlinkDue((int) tick & mask, nowMillis);
+            while (due != null) {
+                EventLoop.ScheduledJob next = due.next;
+                due.next = null;
+                expired.accept(due);
+                due = next;
+            }
+        }
+        currentTick = targetTick;
+    }
+
+    /**
+     * Remove every job from the wheel, passing each that has not been cancelled to {@code removed}.
+     */
+    void drain(Consumer<? super EventLoop.ScheduledJob> removed) {
+        for (int bucket = 0; bucket < buckets.length; bucket++) {
+            EventLoop.ScheduledJob job = buckets[bucket];
+            buckets[bucket] = null;
+            while (job != null) {
+                EventLoop.ScheduledJob next = job.next;
+                job.next = null;
+                if (!job.isCancelled()) removed.accept(job);
+                job = next;
+            }
+        }
+        size = 0;
+    }
+
+    private EventLoop.ScheduledJob unlinkDue(int bucket, long nowMillis) {
+        EventLoop.ScheduledJob due = null;
+        EventLoop.ScheduledJob previous = null;
+        EventLoop.ScheduledJob job = buckets[bucket];
+        while (job != null) {
+            EventLoop.ScheduledJob next = job.next;
+            if (job.isCancelled() || job.time() <= nowMillis) {
+                if (previous == null) buckets[bucket] = next;
+                else previous.next = next;
+                size--;
+                if (job.isCancelled()) {
+                    job.next = null;
+                } else {
+                    job.next = due;
+                    due = job;
+                }
+            } else {
+                previous = job;
+            }
+            job = next;
+        }
+        return due;
+    }
+
+    private long tickOf(long timeMillis) {
+        return Math.max(0, timeMillis - startMillis) / tickMillis;
+    }
+}
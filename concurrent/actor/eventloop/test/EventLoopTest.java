@@ -0,0 +1,300 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.vaticle.typedb.common.concurrent.actor.eventloop.test;
+
+import com.vaticle.typedb.common.concurrent.NamedThreadFactory;
+import com.vaticle.typedb.common.concurrent.actor.Actor;
+import com.vaticle.typedb.common.concurrent.actor.eventloop.EventLoop;
+import com.vaticle.typedb.common.concurrent.actor.eventloop.EventLoopGroup;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class EventLoopTest {
+
+    private static final long TIMEOUT_MILLIS = 10_000;
+
+    private static void awaitStopped(Thread loopThread) throws InterruptedException {
+        loopThread.join(TIMEOUT_MILLIS);
+        assertFalse("the event loop thread did not exit", loopThread.isAlive());
+    }
+
+    @Test
+    public void jobs_run_in_submission_order_on_one_thread() throws Exception {
+        EventLoop eventLoop = new EventLoop(NamedThreadFactory.create("test-order"));
+        List<Integer> ran = new ArrayList<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        for (int i = 0; i < 10_000; i++) {
+            int job = i;
+            eventLoop.submit(() -> {
+                assertTrue(eventLoop.inEventLoopThread());
+                ran.add(job);
+            }, done::completeExceptionally);
+        }
+        eventLoop.submit(() -> done.complete(null), done::completeExceptionally);
+        done.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 10_000; i++) assertEquals(i, (int) ran.get(i));
+        eventLoop.stop();
+        eventLoop.await();
+    }
+
+    @Test
+    public void stop_before_the_loop_thread_starts_still_stops_the_loop() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        Thread[] loopThread = new Thread[1];
+        ThreadFactory delayedStart = runnable -> {
+            loopThread[0] = new Thread(() -> {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                runnable.run();
+            });
+            return loopThread[0];
+        };
+        EventLoop eventLoop = new EventLoop(delayedStart);
+        eventLoop.stop();
+        release.countDown();
+        awaitStopped(loopThread[0]);
+    }
+
+    @Test
+    public void scheduled_jobs_run_in_deadline_order_and_not_before_their_deadline() throws Exception {
+        EventLoop eventLoop = new EventLoop(NamedThreadFactory.create("test-schedule"));
+        List<Long> ran = new ArrayList<>();
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        long start = eventLoop.time();
+        for (long delay : new long[]{60, 20, 40}) {
+            eventLoop.schedule(start + delay, () -> {
+                assertTrue(eventLoop.time() >= start + delay);
+                ran.add(delay);
+            }, done::completeExceptionally);
+        }
+        eventLoop.schedule(start + 80, () -> done.complete(null), done::completeExceptionally);
+        done.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        assertEquals(List.of(20L, 40L, 60L), ran);
+        eventLoop.stop();
+        eventLoop.await();
+    }
+
+    @Test
+    public void cancelled_jobs_do_not_run() throws Exception {
+        EventLoop eventLoop = new EventLoop(NamedThreadFactory.create("test-cancel"));
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        long start = eventLoop.time();
+        EventLoop.Cancellable cancelled = eventLoop.schedule(start + 20, () -> done.completeExceptionally(
+                new AssertionError("a cancelled job ran")), done::completeExceptionally);
+        // far in the future, in a later revolution of the wheel
+        EventLoop.Cancellable distant = eventLoop.schedule(start + TimeUnit.HOURS.toMillis(1), () -> {}, e -> {});
+        cancelled.cancel();
+        distant.cancel();
+        assertTrue(cancelled.isCancelled());
+        eventLoop.schedule(start + 60, () -> done.complete(null), done::completeExceptionally);
+        done.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        eventLoop.stop();
+        eventLoop.await();
+    }
+
+    @Test
+    public void clock_drives_scheduling() throws Exception {
+        AtomicLong clock = new AtomicLong(1_000);
+        EventLoop eventLoop = new EventLoop(NamedThreadFactory.create("test-clock"), clock::get);
+        CompletableFuture<Long> ran = new CompletableFuture<>();
+        eventLoop.schedule(1_010, () -> ran.complete(eventLoop.time()), ran::completeExceptionally);
+        clock.set(1_010);
+        assertEquals(1_010L, (long) ran.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        eventLoop.stop();
+        eventLoop.await();
+    }
+
+    @Test
+    public void submitting_to_a_stopped_loop_fails() throws Exception {
+        EventLoop eventLoop = new EventLoop(NamedThreadFactory.create("test-stopped"));
+        eventLoop.stop();
+        eventLoop.await();
+        assertThrows(() -> eventLoop.submit(() -> {}, e -> {}));
+        assertThrows(() -> eventLoop.schedule(eventLoop.time(), () -> {}, e -> {}));
+    }
+
+    @Test
+    public void submitting_to_a_full_queue_returns_once_the_loop_stops() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        EventLoop eventLoop = new EventLoop(NamedThreadFactory.create("test-full"), System::currentTimeMillis, 4,
+                EventLoop.DEFAULT_BATCH_SIZE, EventLoop.DEFAULT_TICK_MILLIS, EventLoop.DEFAULT_WHEEL_SIZE);
+        eventLoop.submit(() -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, e -> {});
+        blocked.await();
+        for (int i = 0; i < 4; i++) eventLoop.submit(() -> {}, e -> {});
+        CompletableFuture<String> outcome = new CompletableFuture<>();
+        Thread producer = new Thread(() -> {
+            try {
+                eventLoop.submit(() -> outcome.complete("ran"), e -> outcome.complete("failed"));
+            } catch (IllegalStateException e) {
+                outcome.complete("rejected");
+            }
+        });
+        producer.start();
+        eventLoop.stop();
+        release.countDown();
+        // the job is accounted for exactly once, however the producer raced with the loop stopping
+        outcome.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        producer.join(TIMEOUT_MILLIS);
+        assertFalse(producer.isAlive());
+        eventLoop.await();
+    }
+
+    @Test
+    public void jobs_pending_when_the_loop_stops_are_failed() throws Exception {
+        CountDownLatch blocked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        EventLoop eventLoop = new EventLoop(NamedThreadFactory.create("test-pending"), System::currentTimeMillis,
+                EventLoop.DEFAULT_QUEUE_CAPACITY, 1, EventLoop.DEFAULT_TICK_MILLIS, EventLoop.DEFAULT_WHEEL_SIZE);
+        eventLoop.submit(() -> {
+            blocked.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, e -> {});
+        blocked.await();
+        CompletableFuture<Void> queued = new CompletableFuture<>();
+        CompletableFuture<Void> scheduled = new CompletableFuture<>();
+        eventLoop.submit(() -> queued.complete(null), queued::completeExceptionally);
+        eventLoop.schedule(eventLoop.time() + TimeUnit.HOURS.toMillis(1), () -> scheduled.complete(null),
+                scheduled::completeExceptionally);
+        eventLoop.stop();
+        release.countDown();
+        eventLoop.await();
+        assertFailedWithStopped(queued);
+        assertFailedWithStopped(scheduled);
+    }
+
+    private static void assertFailedWithStopped(CompletableFuture<Void> future) throws Exception {
+        try {
+            future.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+            return;
+        }
+        throw new AssertionError("expected the job to fail");
+    }
+
+    @Test
+    public void a_failing_error_handler_does_not_stop_the_loop() throws Exception {
+        EventLoop eventLoop = new EventLoop(NamedThreadFactory.create("test-handler"));
+        CompletableFuture<Throwable> reported = new CompletableFuture<>();
+        eventLoop.submit(() -> Thread.currentThread().setUncaughtExceptionHandler((t, e) -> reported.complete(e)),
+                e -> {});
+        eventLoop.submit(() -> {
+            throw new IllegalArgumentException();
+        }, e -> {
+            throw new UnsupportedOperationException();
+        });
+        assertTrue(reported.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS) instanceof UnsupportedOperationException);
+        CompletableFuture<Void> ran = new CompletableFuture<>();
+        eventLoop.submit(() -> ran.complete(null), ran::completeExceptionally);
+        ran.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        eventLoop.stop();
+        eventLoop.await();
+    }
+
+    private static void assertThrows(Runnable runnable) {
+        try {
+            runnable.run();
+        } catch (IllegalStateException e) {
+            return;
+        }
+        throw new AssertionError("expected an IllegalStateException");
+    }
+
+    @Test
+    public void actor_messages_sent_from_its_constructor_run_after_construction() throws Exception {
+        EventLoopGroup group = new EventLoopGroup(2, "test-actor");
+        CompletableFuture<String> received = new CompletableFuture<>();
+        Actor.Driver<Greeter> driver = Actor.driver(d -> new Greeter(d, received), group);
+        assertEquals("greeter", received.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        assertEquals("greeter", driver.compute(Actor::name).get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        group.stop();
+        group.await();
+    }
+
+    @Test
+    public void event_loops_creating_actors_on_each_other_do_not_block() throws Exception {
+        EventLoopGroup first = new EventLoopGroup(1, "test-actor-first");
+        EventLoopGroup second = new EventLoopGroup(1, "test-actor-second");
+        CyclicBarrier bothCreating = new CyclicBarrier(2);
+        CompletableFuture<String> fromFirst = new CompletableFuture<>();
+        CompletableFuture<String> fromSecond = new CompletableFuture<>();
+        first.nextEventLoop().submit(() -> createAfter(bothCreating, second, fromFirst),
+                fromFirst::completeExceptionally);
+        second.nextEventLoop().submit(() -> createAfter(bothCreating, first, fromSecond),
+                fromSecond::completeExceptionally);
+        assertEquals("greeter", fromFirst.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        assertEquals("greeter", fromSecond.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+        first.stop();
+        second.stop();
+        first.await();
+        second.await();
+    }
+
+    private static void createAfter(CyclicBarrier barrier, EventLoopGroup group, CompletableFuture<String> received) {
+        try {
+            barrier.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+        Actor.<Greeter>driver(d -> new Greeter(d, received), group);
+    }
+
+    private static class Greeter extends Actor<Greeter> {
+
+        private final CompletableFuture<String> received;
+
+        private Greeter(Driver<Greeter> driver, CompletableFuture<String> received) {
+            super(driver, "greeter");
+            this.received = received;
+            driver.execute(greeter -> received.complete(greeter.name()));
+        }
+
+        @Override
+        protected void exception(Throwable e) {
+            received.completeExceptionally(e);
+        }
+    }
+}
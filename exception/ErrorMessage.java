@@ -17,49 +17,202 @@
 
 package com.vaticle.typedb.common.exception;
 
-import java.util.HashMap;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.Formattable;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * A coded error message. Every instance is registered on construction in a concurrent registry, so that error classes
+ * may be loaded from several threads at once, and so that a code can be mapped back to its message with
+ * {@link #byCode(String)}.
+ *
+ * Code numbers are zero-padded to {@code ceil(log10(max))} digits, where {@code max} is the largest code number
+ * registered so far. That width can grow as further error classes load, so each code is computed on construction and
+ * only recomputed if the width has grown since.
+ *
+ * Each message is parsed once, on construction, into literal text and {@code %s} and {@code %d} placeholders, which
+ * {@link #message(Object...)} fills in directly. Messages using any other format syntax are rendered through
+ * {@link String#format(String, Object...)} instead.
+ */
 public abstract class ErrorMessage {
 
-    private static Map<String, Map<Integer, ErrorMessage>> errors = new HashMap<>();
+    private static final Map<String, Map<Integer, ErrorMessage>> errors = new ConcurrentHashMap<>();
     private static int maxCodeNumber = 0;
-    private static int maxCodeDigits = 0;
+    private static volatile int maxCodeDigits = 0;
+    private static final int BUILDER_CAPACITY = 256;
+    private static final int BUILDER_MAX_CAPACITY = 1 << 14;
+    private static final ThreadLocal<StringBuilder> BUILDER =
+            ThreadLocal.withInitial(() -> new StringBuilder(BUILDER_CAPACITY));
 
     private final String codePrefix;
     private final int codeNumber;
+    private final int codeNumberDigits;
     private final String message;
-    private String code = null;
+    private final Template template;
+    private volatile String code;
 
     protected ErrorMessage(String codePrefix, int codeNumber, String messagePrefix, String messageBody) {
         this.codePrefix = codePrefix;
         this.codeNumber = codeNumber;
+        this.codeNumberDigits = digits(codeNumber);
         this.message = messagePrefix + ": " + messageBody;
+        this.template = Template.parse(message);
 
-        assert errors.get(codePrefix) == null || errors.get(codePrefix).get(codeNumber) == null;
-        errors.computeIfAbsent(codePrefix, s -> new HashMap<>()).put(codeNumber, this);
-        maxCodeNumber = Math.max(codeNumber, maxCodeNumber);
-        maxCodeDigits = (int) Math.ceil(Math.log10(maxCodeNumber));
+        ErrorMessage existing = errors.computeIfAbsent(codePrefix, s -> new ConcurrentHashMap<>())
+                .putIfAbsent(codeNumber, this);
+        assert existing == null;
+        growCodeDigits(codeNumber);
+        this.code = code(maxCodeDigits);
     }
 
-    public String code() {
-        if (code != null) return code;
+    /**
+     * @return the message registered under a code such as {@code TXN05}, whatever its padding, or null if there is none
+     */
+    public static ErrorMessage byCode(String code) {
+        int numberStart = code.length();
+        while (numberStart > 0 && Character.isDigit(code.charAt(numberStart - 1))) numberStart--;
+        // a prefix may itself end in digits, so try each split of the trailing digits, longest number first
+        for (numberStart = Math.max(numberStart, code.length() - 9); numberStart < code.length(); numberStart++) {
+            ErrorMessage error = byCode(code.substring(0, numberStart), Integer.parseInt(code.substring(numberStart)));
+            if (error != null) return error;
+        }
+        return null;
+    }
+
+    /**
+     * @return the message registered under the code prefix and number, or null if there is none
+     */
+    public static ErrorMessage byCode(String codePrefix, int codeNumber) {
+        Map<Integer, ErrorMessage> prefixed = errors.get(codePrefix);
+        return prefixed == null ? null : prefixed.get(codeNumber);
+    }
+
+    private static synchronized void growCodeDigits(int codeNumber) {
+        if (codeNumber <= maxCodeNumber) return;
+        maxCodeNumber = codeNumber;
+        // ceil(log10(n)) for n > 1, computed exactly: one digit short of n's own digit count when n is a power of ten
+        maxCodeDigits = maxCodeNumber > 1 ? digits(maxCodeNumber - 1) : 0;
+    }
 
-        StringBuilder zeros = new StringBuilder();
-        for (int digits = (int) Math.floor(Math.log10(codeNumber)) + 1; digits < maxCodeDigits; digits++) {
-            zeros.append("0");
+    private static int digits(int number) {
+        int digits = 1;
+        while (number >= 10) {
+            number /= 10;
+            digits++;
         }
+        return digits;
+    }
 
-        code = codePrefix + zeros.toString() + codeNumber;
+    public String code() {
+        int digits = maxCodeDigits;
+        String code = this.code;
+        if (code.length() != codePrefix.length() + Math.max(digits, codeNumberDigits)) {
+            code = code(digits);
+            this.code = code;
+        }
         return code;
     }
 
+    private String code(int digits) {
+        StringBuilder code = new StringBuilder(codePrefix.length() + Math.max(digits, codeNumberDigits));
+        code.append(codePrefix);
+        for (int i = codeNumberDigits; i < digits; i++) code.append('0');
+        return code.append(codeNumber).toString();
+    }
+
     public String message(Object... parameters) {
-        return String.format(toString(), parameters);
+        if (template == null || !template.accepts(parameters)) return String.format(toString(), parameters);
+        StringBuilder builder = BUILDER.get();
+        // a parameter's toString() may itself render a message on this thread, while the shared builder is in use
+        boolean shared = builder.length() == 0;
+        if (!shared) builder = new StringBuilder(BUILDER_CAPACITY);
+        try {
+            builder.append('[').append(code()).append("] ");
+            template.render(builder, parameters);
+            return builder.toString();
+        } finally {
+            if (shared && builder.capacity() > BUILDER_MAX_CAPACITY) BUILDER.set(new StringBuilder(BUILDER_CAPACITY));
+            else if (shared) builder.setLength(0);
+        }
     }
 
     @Override
     public String toString() {
-        return String.format("[%s] %s", code(), message);
+        return "[" + code() + "] " + message;
+    }
+
+    /**
+     * A message split around its placeholders: {@code literals} has one more element than {@code conversions}, which
+     * holds the conversion character, {@code 's'} or {@code 'd'}, of each placeholder in turn.
+     */
+    private static class Template {
+
+        private final String[] literals;
+        private final char[] conversions;
+
+        private Template(String[] literals, char[] conversions) {
+            this.literals = literals;
+            this.conversions = conversions;
+        }
+
+        /**
+         * @return the parsed template, or null if the message uses format syntax beyond plain {@code %s}, {@code %d},
+         * {@code %n} and {@code %%}
+         */
+        private static Template parse(String message) {
+            List<String> literals = new ArrayList<>();
+            StringBuilder conversions = new StringBuilder();
+            StringBuilder literal = new StringBuilder();
+            for (int i = 0; i < message.length(); i++) {
+                char c = message.charAt(i);
+                if (c != '%') {
+                    literal.append(c);
+                    continue;
+                } else if (++i == message.length()) {
+                    return null;
+                }
+                char conversion = message.charAt(i);
+                if (conversion == '%') {
+                    literal.append('%');
+                } else if (conversion == 'n') {
+                    literal.append(System.lineSeparator());
+                } else if (conversion == 's' || conversion == 'd') {
+                    literals.add(literal.toString());
+                    literal.setLength(0);
+                    conversions.append(conversion);
+                } else {
+                    return null;
+                }
+            }
+            literals.add(literal.toString());
+            return new Template(literals.toArray(new String[0]), conversions.toString().toCharArray());
+        }
+
+        /**
+         * @return whether every placeholder has a parameter that can be rendered without a {@link java.util.Formatter}
+         */
+        private boolean accepts(Object[] parameters) {
+            if (parameters == null || parameters.length < conversions.length) return false;
+            for (int i = 0; i < conversions.length; i++) {
+                Object parameter = parameters[i];
+                if (parameter instanceof Formattable) return false;
+                else if (conversions[i] == 'd' && parameter != null && !(parameter instanceof Integer) &&
+                        !(parameter instanceof Long) && !(parameter instanceof Short) &&
+                        !(parameter instanceof Byte) && !(parameter instanceof BigInteger)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void render(StringBuilder builder, Object[] parameters) {
+            builder.append(literals[0]);
+            for (int i = 0; i < conversions.length; i++) {
+                builder.append(parameters[i]).append(literals[i + 1]);
+            }
+        }
     }
 }
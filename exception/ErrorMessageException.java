@@ -0,0 +1,76 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.vaticle.typedb.common.exception;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * An exception described by an {@link ErrorMessage}, whose message is only rendered when {@link #getMessage()} is first
+ * called, so that exceptions which are caught and handled without being reported never pay for formatting. The
+ * parameters are held until then, so they should not be mutated after the exception is thrown.
+ *
+ * The message is rendered before the exception is serialized, and only the rendered message and the error code are
+ * written, so parameters need not be serializable. The error message is looked up by its code on deserialization.
+ */
+public class ErrorMessageException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private transient ErrorMessage errorMessage;
+    private transient Object[] parameters;
+    private volatile String message;
+
+    public ErrorMessageException(ErrorMessage errorMessage, Object... parameters) {
+        super();
+        this.errorMessage = errorMessage;
+        this.parameters = parameters;
+    }
+
+    public ErrorMessageException(Throwable cause, ErrorMessage errorMessage, Object... parameters) {
+        super(cause);
+        this.errorMessage = errorMessage;
+        this.parameters = parameters;
+    }
+
+    public ErrorMessage errorMessage() {
+        return errorMessage;
+    }
+
+    @Override
+    public String getMessage() {
+        String message = this.message;
+        if (message == null) {
+            message = errorMessage.message(parameters);
+            this.message = message;
+        }
+        return message;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        getMessage();
+        out.defaultWriteObject();
+        out.writeObject(errorMessage.code());
+    }
+
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+        in.defaultReadObject();
+        errorMessage = ErrorMessage.byCode((String) in.readObject());
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.vaticle.typedb.common.exception.test;
+
+import com.vaticle.typedb.common.exception.ErrorMessage;
+import com.vaticle.typedb.common.exception.ErrorMessageException;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class ErrorMessageTest {
+
+    private static class TestError extends ErrorMessage {
+
+        private TestError(String codePrefix, int codeNumber, String message) {
+            super(codePrefix, codeNumber, "Test Error", message);
+        }
+    }
+
+    @Test
+    public void byCode_finds_message_whatever_its_padding() {
+        TestError error = new TestError("BYC", 7, "Seven.");
+        assertSame(error, ErrorMessage.byCode(error.code()));
+        assertSame(error, ErrorMessage.byCode("BYC7"));
+        assertSame(error, ErrorMessage.byCode("BYC0007"));
+        assertSame(error, ErrorMessage.byCode("BYC", 7));
+    }
+
+    @Test
+    public void byCode_returns_null_for_unknown_codes() {
+        new TestError("UNK", 1, "One.");
+        assertNull(ErrorMessage.byCode("UNK2"));
+        assertNull(ErrorMessage.byCode("UNK"));
+        assertNull(ErrorMessage.byCode("NOPREFIX1"));
+        assertNull(ErrorMessage.byCode("UNK", 2));
+    }
+
+    @Test
+    public void byCode_splits_prefixes_ending_in_digits() {
+        TestError error = new TestError("P2P", 3, "Three.");
+        assertSame(error, ErrorMessage.byCode("P2P3"));
+    }
+
+    @Test
+    public void registration_is_safe_across_threads() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                String prefix = "THR" + (char) ('A' + thread);
+                futures.add(executor.submit(() -> {
+                    for (int number = 1; number <= 50; number++) new TestError(prefix, number, "Concurrent.");
+                }));
+            }
+            for (Future<?> future : futures) future.get();
+        } finally {
+            executor.shutdown();
+        }
+        for (int thread = 0; thread < 8; thread++) {
+            String prefix = "THR" + (char) ('A' + thread);
+            for (int number = 1; number <= 50; number++) {
+                assertEquals(number, Integer.parseInt(ErrorMessage.byCode(prefix, number).code().substring(4)));
+            }
+        }
+    }
+
+    @Test
+    public void message_renders_placeholders_as_format_would() {
+        TestError error = new TestError("MSG", 1, "Value '%s' at %d is 100%% wrong.");
+        assertEquals(String.format(error.toString(), "x", 42), error.message("x", 42));
+        assertEquals(String.format(error.toString(), null, null), error.message(null, null));
+    }
+
+    @Test
+    public void exception_without_a_cause_can_be_chained_later() {
+        TestError error = new TestError("CSE", 1, "Failed on '%s'.");
+        ErrorMessageException exception = new ErrorMessageException(error, "x");
+        IllegalStateException cause = new IllegalStateException();
+        exception.initCause(cause);
+        assertSame(cause, exception.getCause());
+        assertEquals(error.message("x"), exception.getMessage());
+        assertSame(cause, new ErrorMessageException(cause, error, "y").getCause());
+    }
+}
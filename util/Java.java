@@ -27,11 +27,12 @@ public class Java {
             // Java 8 or lower: 1.6.0_23, 1.7.0, 1.7.0_80, 1.8.0_211
             version = version.substring(2, 3);
         } else {
-            // Java 9 or higher: 9.0.1, 11.0.4, 12, 12.0.1
-            int dot = version.indexOf(".");
-            if (dot != -1) {
-                version = version.substring(0, dot);
+            // Java 9 or higher: 9.0.1, 11.0.4, 12, 12.0.1, and pre-releases such as 21-ea or 22-internal
+            int end = 0;
+            while (end < version.length() && Character.isDigit(version.charAt(end))) {
+                end++;
             }
+            version = version.substring(0, end);
         }
         try {
             return Integer.parseInt(version);
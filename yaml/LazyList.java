@@ -0,0 +1,82 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.vaticle.typedb.common.yaml;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * The content of a lazily loaded {@link YAML.List}, which builds its elements on first access, then delegates to them.
+ * Building them is thread-safe; modifying them afterwards is no more so than modifying any other {@link YAML.List}.
+ */
+class LazyList extends AbstractList<YAML> {
+
+    private Supplier<List<YAML>> loader;
+    private volatile List<YAML> list;
+
+    LazyList(Supplier<List<YAML>> loader) {
+        this.loader = loader;
+    }
+
+    private List<YAML> list() {
+        List<YAML> list = this.list;
+        if (list == null) {
+            synchronized (this) {
+                list = this.list;
+                if (list == null) {
+                    list = loader.get();
+                    this.list = list;
+                    loader = null;
+                }
+            }
+        }
+        return list;
+    }
+
+    @Override
+    public YAML get(int index) {
+        return list().get(index);
+    }
+
+    @Override
+    public int size() {
+        return list().size();
+    }
+
+    @Override
+    public YAML set(int index, YAML element) {
+        return list().set(index, element);
+    }
+
+    @Override
+    public void add(int index, YAML element) {
+        list().add(index, element);
+    }
+
+    @Override
+    public YAML remove(int index) {
+        return list().remove(index);
+    }
+
+    @Override
+    public Iterator<YAML> iterator() {
+        return list().iterator();
+    }
+}
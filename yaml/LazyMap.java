@@ -0,0 +1,93 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.vaticle.typedb.common.yaml;
+
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * The content of a lazily loaded {@link YAML.Map}, which builds its entries on first access, then delegates to them.
+ * Building them is thread-safe; modifying them afterwards is no more so than modifying any other {@link YAML.Map}.
+ */
+class LazyMap extends AbstractMap<String, YAML> {
+
+    private Supplier<Map<String, YAML>> loader;
+    private volatile Map<String, YAML> map;
+
+    LazyMap(Supplier<Map<String, YAML>> loader) {
+        this.loader = loader;
+    }
+
+    private Map<String, YAML> map() {
+        Map<String, YAML> map = this.map;
+        if (map == null) {
+            synchronized (this) {
+                map = this.map;
+                if (map == null) {
+                    map = loader.get();
+                    this.map = map;
+                    loader = null;
+                }
+            }
+        }
+        return map;
+    }
+
+    @Override
+    public int size() {
+        return map().size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return map().containsKey(key);
+    }
+
+    @Override
+    public YAML get(Object key) {
+        return map().get(key);
+    }
+
+    @Override
+    public YAML put(String key, YAML value) {
+        return map().put(key, value);
+    }
+
+    @Override
+    public YAML remove(Object key) {
+        return map().remove(key);
+    }
+
+    @Override
+    public Set<String> keySet() {
+        return map().keySet();
+    }
+
+    @Override
+    public Set<Entry<String, YAML>> entrySet() {
+        return map().entrySet();
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super String, ? super YAML> action) {
+        map().forEach(action);
+    }
+}
@@ -0,0 +1,539 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.vaticle.typedb.common.yaml;
+
+import org.yaml.snakeyaml.events.AliasEvent;
+import org.yaml.snakeyaml.events.CollectionEndEvent;
+import org.yaml.snakeyaml.events.CollectionStartEvent;
+import org.yaml.snakeyaml.events.DocumentEndEvent;
+import org.yaml.snakeyaml.events.DocumentStartEvent;
+import org.yaml.snakeyaml.events.Event;
+import org.yaml.snakeyaml.events.MappingStartEvent;
+import org.yaml.snakeyaml.events.NodeEvent;
+import org.yaml.snakeyaml.events.ScalarEvent;
+import org.yaml.snakeyaml.events.SequenceStartEvent;
+import org.yaml.snakeyaml.events.StreamEndEvent;
+import org.yaml.snakeyaml.events.StreamStartEvent;
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+import java.io.BufferedReader;
+import java.io.CharArrayReader;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds {@link YAML} nodes straight from SnakeYAML's parser events, rather than having SnakeYAML construct a tree of
+ * Java maps and lists to be copied afterwards. Scalars are resolved with SnakeYAML's YAML 1.1 rules, and anchors,
+ * aliases and merge keys are supported. As when SnakeYAML's own tree was copied, each alias gets its own copy of the
+ * maps and lists of the node it refers to, and a document that is only a null scalar loads as null.
+ */
+class Loader {
+
+    private static final Set<java.lang.String> TRUE_VALUES = com.vaticle.typedb.common.collection.Collections.set(
+            "yes", "true", "on"
+    );
+
+    // files at least this large are memory-mapped rather than read into a heap buffer
+    private static final int MAPPING_THRESHOLD = 1 << 16;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final BigInteger SIXTY = BigInteger.valueOf(60);
+    private static final Pattern TIMESTAMP = Pattern.compile(
+            "([0-9]{4})-([0-9]{1,2})-([0-9]{1,2})(?:(?:[Tt]|[ \\t]+)([0-9]{1,2}):([0-9]{2}):([0-9]{2})" +
+                    "(?:\\.([0-9]*))?(?:[ \\t]*(?:Z|([-+][0-9]{1,2})(?::([0-9]{2}))?))?)?"
+    );
+
+    private final Resolver resolver = new Resolver();
+    private final boolean immutable;
+
+    private Loader(boolean immutable) {
+        this.immutable = immutable;
+    }
+
+    static YAML load(Reader reader) {
+        Loader loader = new Loader(false);
+        Iterator<Event> events = new org.yaml.snakeyaml.Yaml().parse(reader).iterator();
+        return loader.new Streaming(events).document();
+    }
+
+    /**
+     * Load a document whose maps and lists are unmodifiable, so that it may be shared across threads. Aliased nodes
+     * are shared rather than copied, since none can be modified.
+     */
+    static YAML loadImmutable(Reader reader) {
+        Loader loader = new Loader(true);
+        Iterator<Event> events = new org.yaml.snakeyaml.Yaml().parse(reader).iterator();
+        return loader.new Streaming(events).document();
+    }
+
+    /**
+     * Parse the whole document up front, as {@link #load(Reader)} does, but build each map or list's content only when
+     * it is first accessed. Only a compact record of the document's nodes is kept between the two.
+     */
+    static YAML loadLazily(Reader reader) {
+        Loader loader = new Loader(false);
+        return loader.new Lazy(new org.yaml.snakeyaml.Yaml().parse(reader).iterator()).document();
+    }
+
+    /**
+     * Read a UTF-8 file in full and close it, decoding it into a single character array without intermediate copies.
+     */
+    static Reader reader(Path filePath) throws FileNotFoundException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException(java.lang.String.format("YAML file '%s' is too large.", filePath));
+            }
+            ByteBuffer bytes;
+            if (size >= MAPPING_THRESHOLD) {
+                bytes = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                bytes = ByteBuffer.allocate((int) size);
+                while (bytes.hasRemaining()) {
+                    if (channel.read(bytes) < 0) break;
+                }
+                bytes.flip();
+            }
+            return reader(bytes);
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException(filePath.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static Reader reader(ReadableByteChannel channel) {
+        return new BufferedReader(Channels.newReader(channel, StandardCharsets.UTF_8.newDecoder(), BUFFER_SIZE),
+                BUFFER_SIZE);
+    }
+
+    private static Reader reader(ByteBuffer bytes) throws CharacterCodingException {
+        if (bytes.remaining() >= 3 && bytes.get(bytes.position()) == (byte) 0xEF &&
+                bytes.get(bytes.position() + 1) == (byte) 0xBB && bytes.get(bytes.position() + 2) == (byte) 0xBF) {
+            bytes.position(bytes.position() + 3);
+        }
+        CharBuffer chars = StandardCharsets.UTF_8.newDecoder().decode(bytes);
+        return new CharArrayReader(chars.array(), chars.arrayOffset() + chars.position(), chars.remaining());
+    }
+
+    private YAML scalar(ScalarEvent event) {
+        return scalar(tag(event), event.getValue());
+    }
+
+    private static YAML scalar(Tag tag, java.lang.String value) {
+        if (tag.equals(Tag.NULL)) return YAML.Null.NULL;
+        else if (tag.equals(Tag.STR)) return new YAML.String(value);
+        else if (tag.equals(Tag.BOOL)) return YAML.Boolean.of(TRUE_VALUES.contains(value.toLowerCase()));
+        else if (tag.equals(Tag.INT)) return integer(value);
+        else if (tag.equals(Tag.FLOAT)) return floatingPoint(value);
+        else if (tag.equals(Tag.TIMESTAMP)) return timestamp(value);
+        else throw new IllegalStateException(java.lang.String.format("Unsupported YAML tag '%s'.", tag));
+    }
+
+    private Tag tag(ScalarEvent event) {
+        java.lang.String tag = event.getTag();
+        if (tag == null || tag.equals("!")) {
+            return resolver.resolve(NodeId.scalar, event.getValue(), event.getImplicit().canOmitTagInPlainScalar());
+        }
+        return new Tag(tag);
+    }
+
+    private boolean isMergeKey(ScalarEvent event) {
+        return event.getImplicit().canOmitTagInPlainScalar() && tag(event).equals(Tag.MERGE);
+    }
+
+    /**
+     * @return the narrowest of an Int, a Long or a BigInteger that holds the value
+     */
+    private static YAML integer(java.lang.String value) {
+        value = value.replace("_", "");
+        java.lang.String sign = "";
+        if (value.startsWith("-")) {
+            sign = "-";
+            value = value.substring(1);
+        } else if (value.startsWith("+")) {
+            value = value.substring(1);
+        }
+        int radix = 10;
+        if (value.equals("0")) {
+            return YAML.Int.of(0);
+        } else if (value.startsWith("0b")) {
+            radix = 2;
+            value = value.substring(2);
+        } else if (value.startsWith("0x")) {
+            radix = 16;
+            value = value.substring(2);
+        } else if (value.startsWith("0")) {
+            radix = 8;
+            value = value.substring(1);
+        } else if (value.contains(":")) {
+            BigInteger result = BigInteger.ZERO;
+            for (java.lang.String digits : value.split(":")) {
+                result = result.multiply(SIXTY).add(new BigInteger(digits));
+            }
+            return integer(sign.isEmpty() ? result : result.negate());
+        }
+        try {
+            long result = Long.parseLong(sign + value, radix);
+            return result == (int) result ? YAML.Int.of((int) result) : new YAML.Long(result);
+        } catch (NumberFormatException e) {
+            return integer(new BigInteger(sign + value, radix));
+        }
+    }
+
+    private static YAML integer(BigInteger value) {
+        if (value.bitLength() < Integer.SIZE) return YAML.Int.of(value.intValue());
+        else if (value.bitLength() < Long.SIZE) return new YAML.Long(value.longValue());
+        else return new YAML.BigInteger(value);
+    }
+
+    /**
+     * @return a Double, or a BigDecimal if the value is finite but beyond the range of a double
+     */
+    private static YAML floatingPoint(java.lang.String value) {
+        value = value.replace("_", "").toLowerCase();
+        int sign = 1;
+        if (value.startsWith("-")) {
+            sign = -1;
+            value = value.substring(1);
+        } else if (value.startsWith("+")) {
+            value = value.substring(1);
+        }
+        if (value.equals(".inf")) return new YAML.Double(sign * java.lang.Double.POSITIVE_INFINITY);
+        else if (value.equals(".nan")) return new YAML.Double(java.lang.Double.NaN);
+        else if (value.contains(":")) {
+            double result = 0;
+            for (java.lang.String digits : value.split(":")) result = result * 60 + java.lang.Double.parseDouble(digits);
+            return new YAML.Double(sign * result);
+        }
+        double result = java.lang.Double.parseDouble(value);
+        if (java.lang.Double.isInfinite(result) || (result == 0 && new BigDecimal(value).signum() != 0)) {
+            BigDecimal exact = new BigDecimal(value);
+            return new YAML.BigDecimal(sign < 0 ? exact.negate() : exact);
+        }
+        return new YAML.Double(sign * result);
+    }
+
+    /**
+     * Parse a YAML 1.1 timestamp: a date, optionally followed by a time and a time zone, which defaults to UTC.
+     */
+    private static YAML timestamp(java.lang.String value) {
+        Matcher matcher = TIMESTAMP.matcher(value);
+        if (!matcher.matches()) {
+            throw new IllegalStateException(java.lang.String.format("Invalid timestamp '%s'.", value));
+        }
+        int nanos = 0;
+        if (matcher.group(7) != null && !matcher.group(7).isEmpty()) {
+            java.lang.String fraction = (matcher.group(7) + "00000000").substring(0, 9);
+            nanos = Integer.parseInt(fraction);
+        }
+        ZoneOffset offset = ZoneOffset.UTC;
+        if (matcher.group(8) != null) {
+            int hours = Integer.parseInt(matcher.group(8));
+            int minutes = matcher.group(9) != null ? Integer.parseInt(matcher.group(9)) : 0;
+            offset = ZoneOffset.ofHoursMinutes(hours, matcher.group(8).startsWith("-") ? -minutes : minutes);
+        }
+        return new YAML.Timestamp(OffsetDateTime.of(
+                Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)), Integer.parseInt(matcher.group(3)),
+                matcher.group(4) != null ? Integer.parseInt(matcher.group(4)) : 0,
+                matcher.group(5) != null ? Integer.parseInt(matcher.group(5)) : 0,
+                matcher.group(6) != null ? Integer.parseInt(matcher.group(6)) : 0,
+                nanos, offset
+        ));
+    }
+
+    /**
+     * Apply merge keys ({@code <<}): entries of the merged maps are added first, with earlier maps taking precedence,
+     * and the map's own entries override them.
+     */
+    private static java.util.Map<java.lang.String, YAML> merge(java.util.Map<java.lang.String, YAML> map,
+                                                              java.util.List<YAML> merges) {
+        java.util.Map<java.lang.String, YAML> merged = new LinkedHashMap<>();
+        for (YAML merge : merges) {
+            if (merge.isList()) {
+                for (YAML element : merge.asList().content()) {
+                    if (!element.isNull()) element.asMap().forEach(merged::putIfAbsent);
+                }
+            } else if (!merge.isNull()) {
+                merge.asMap().forEach(merged::putIfAbsent);
+            }
+        }
+        merged.putAll(map);
+        return merged;
+    }
+
+    /**
+     * @return a copy of the node whose maps and lists are new, so that it may be modified independently of the
+     * original; scalars are immutable, so are shared
+     */
+    private static YAML copy(YAML node) {
+        if (node.isMap()) {
+            java.util.Map<java.lang.String, YAML> map = new LinkedHashMap<>();
+            node.asMap().forEach((key, value) -> map.put(key, copy(value)));
+            return new YAML.Map(map);
+        } else if (node.isList()) {
+            java.util.List<YAML> list = new ArrayList<>(node.asList().content().size());
+            for (YAML element : node.asList().content()) list.add(copy(element));
+            return new YAML.List(list);
+        } else {
+            return node;
+        }
+    }
+
+    private static IllegalStateException unknownAlias(java.lang.String anchor) {
+        return new IllegalStateException(java.lang.String.format("Unknown YAML alias '%s'.", anchor));
+    }
+
+    private static IllegalStateException unexpected(Event event) {
+        return new IllegalStateException(java.lang.String.format("Unexpected YAML event '%s'.", event));
+    }
+
+    /**
+     * Consumes the events in order, building each node as its events arrive.
+     */
+    private class Streaming {
+
+        private final Iterator<Event> events;
+        private final java.util.Map<java.lang.String, YAML> anchors = new HashMap<>();
+
+        private Streaming(Iterator<Event> events) {
+            this.events = events;
+        }
+
+        private YAML document() {
+            Event event = events.next();
+            if (!(event instanceof StreamStartEvent)) throw unexpected(event);
+            event = events.next();
+            if (event instanceof StreamEndEvent) return null;
+            else if (!(event instanceof DocumentStartEvent)) throw unexpected(event);
+            YAML document = node(events.next());
+            if (!((event = events.next()) instanceof DocumentEndEvent)) throw unexpected(event);
+            if (!((event = events.next()) instanceof StreamEndEvent)) {
+                throw new IllegalStateException("Expected a single YAML document, but found more.");
+            }
+            return document.isNull() ? null : document;
+        }
+
+        private YAML node(Event event) {
+            YAML node;
+            if (event instanceof AliasEvent) {
+                return alias((AliasEvent) event);
+            } else if (event instanceof ScalarEvent) {
+                node = scalar((ScalarEvent) event);
+            } else if (event instanceof SequenceStartEvent) {
+                java.util.List<YAML> list = new ArrayList<>();
+                Event element;
+                while (!((element = events.next()) instanceof CollectionEndEvent)) list.add(node(element));
+                node = new YAML.List(immutable ? java.util.Collections.unmodifiableList(list) : list);
+            } else if (event instanceof MappingStartEvent) {
+                node = map();
+            } else {
+                throw unexpected(event);
+            }
+            java.lang.String anchor = ((NodeEvent) event).getAnchor();
+            if (anchor != null) anchors.put(anchor, node);
+            return node;
+        }
+
+        private YAML.Map map() {
+            java.util.Map<java.lang.String, YAML> map = new LinkedHashMap<>();
+            java.util.List<YAML> merges = null;
+            Event event;
+            while (!((event = events.next()) instanceof CollectionEndEvent)) {
+                if (event instanceof ScalarEvent && isMergeKey((ScalarEvent) event)) {
+                    if (merges == null) merges = new ArrayList<>();
+                    merges.add(node(events.next()));
+                } else {
+                    map.put(key(event), node(events.next()));
+                }
+            }
+            if (merges != null) map = merge(map, merges);
+            return new YAML.Map(immutable ? java.util.Collections.unmodifiableMap(map) : map);
+        }
+
+        private java.lang.String key(Event event) {
+            if (event instanceof ScalarEvent) return ((ScalarEvent) event).getValue();
+            else if (event instanceof AliasEvent && alias((AliasEvent) event).isString()) {
+                return alias((AliasEvent) event).asString().value();
+            } else throw new IllegalStateException("YAML map keys must be scalars.");
+        }
+
+        private YAML alias(AliasEvent event) {
+            YAML node = anchors.get(event.getAnchor());
+            if (node == null) throw unknownAlias(event.getAnchor());
+            return immutable ? node : copy(node);
+        }
+    }
+
+    /**
+     * A compact record of the document's nodes, in document order, from which any node can be built on demand. Every
+     * node has a kind. A scalar also has its value and tag, a map or list the index just past its last descendant,
+     * and an alias the index of the node it refers to: the latest node with its anchor to be complete before the
+     * alias, just as in streaming. Scalars are resolved when their map or list is built, so an invalid scalar value is
+     * only reported then.
+     */
+    private class Lazy {
+
+        private static final byte SCALAR = 0;
+        private static final byte MERGE_KEY = 1;
+        private static final byte ALIAS = 2;
+        private static final byte LIST = 3;
+        private static final byte MAP = 4;
+        private static final int INITIAL_CAPACITY = 16;
+
+        private final byte[] kinds;
+        private final int[] links;
+        private final java.lang.String[] values;
+        private final Tag[] tags;
+        private final int size;
+
+        private Lazy(Iterator<Event> events) {
+            Event event = events.next();
+            if (!(event instanceof StreamStartEvent)) throw unexpected(event);
+            byte[] kinds = new byte[INITIAL_CAPACITY];
+            int[] links = new int[INITIAL_CAPACITY];
+            java.lang.String[] values = new java.lang.String[INITIAL_CAPACITY];
+            Tag[] tags = new Tag[INITIAL_CAPACITY];
+            int size = 0;
+            int documents = 0;
+            int[] starts = new int[INITIAL_CAPACITY];
+            java.lang.String[] startAnchors = new java.lang.String[INITIAL_CAPACITY];
+            int depth = 0;
+            java.util.Map<java.lang.String, Integer> anchors = new HashMap<>();
+            while (!((event = events.next()) instanceof StreamEndEvent)) {
+                if (event instanceof DocumentStartEvent) {
+                    if (++documents > 1) {
+                        throw new IllegalStateException("Expected a single YAML document, but found more.");
+                    }
+                    continue;
+                } else if (event instanceof DocumentEndEvent) {
+                    continue;
+                } else if (event instanceof CollectionEndEvent) {
+                    int start = starts[--depth];
+                    links[start] = size;
+                    // a map or list's anchor is only in scope once it is complete, as in streaming
+                    if (startAnchors[depth] != null) anchors.put(startAnchors[depth], start);
+                    continue;
+                }
+                if (size == kinds.length) {
+                    kinds = Arrays.copyOf(kinds, size << 1);
+                    links = Arrays.copyOf(links, size << 1);
+                    values = Arrays.copyOf(values, size << 1);
+                    tags = Arrays.copyOf(tags, size << 1);
+                }
+                if (event instanceof AliasEvent) {
+                    Integer target = anchors.get(((AliasEvent) event).getAnchor());
+                    if (target == null) throw unknownAlias(((AliasEvent) event).getAnchor());
+                    kinds[size] = ALIAS;
+                    links[size] = target;
+                } else if (event instanceof ScalarEvent) {
+                    ScalarEvent scalar = (ScalarEvent) event;
+                    kinds[size] = isMergeKey(scalar) ? MERGE_KEY : SCALAR;
+                    values[size] = scalar.getValue();
+                    tags[size] = tag(scalar);
+                    if (scalar.getAnchor() != null) anchors.put(scalar.getAnchor(), size);
+                } else if (event instanceof CollectionStartEvent) {
+                    kinds[size] = event instanceof SequenceStartEvent ? LIST : MAP;
+                    if (depth == starts.length) {
+                        starts = Arrays.copyOf(starts, depth << 1);
+                        startAnchors = Arrays.copyOf(startAnchors, depth << 1);
+                    }
+                    starts[depth] = size;
+                    startAnchors[depth++] = ((CollectionStartEvent) event).getAnchor();
+                } else {
+                    throw unexpected(event);
+                }
+                size++;
+            }
+            this.kinds = kinds;
+            this.links = links;
+            this.values = values;
+            this.tags = tags;
+            this.size = size;
+        }
+
+        private YAML document() {
+            if (size == 0) return null;
+            YAML document = node(0);
+            return document.isNull() ? null : document;
+        }
+
+        private int next(int index) {
+            return kinds[index] == LIST || kinds[index] == MAP ? links[index] : index + 1;
+        }
+
+        private YAML node(int index) {
+            byte kind = kinds[index];
+            // every reference to a map or list builds its own content, so aliased nodes are copies, as in streaming
+            if (kind == ALIAS) return node(links[index]);
+            else if (kind == LIST) return new YAML.List(new LazyList(() -> list(index)));
+            else if (kind == MAP) return new YAML.Map(new LazyMap(() -> map(index)));
+            else return scalar(tags[index], values[index]);
+        }
+
+        private java.util.List<YAML> list(int start) {
+            java.util.List<YAML> list = new ArrayList<>();
+            for (int i = start + 1; i < links[start]; i = next(i)) list.add(node(i));
+            return list;
+        }
+
+        private java.util.Map<java.lang.String, YAML> map(int start) {
+            java.util.Map<java.lang.String, YAML> map = new LinkedHashMap<>();
+            java.util.List<YAML> merges = null;
+            for (int i = start + 1; i < links[start]; i = next(next(i))) {
+                if (kinds[i] == MERGE_KEY) {
+                    if (merges == null) merges = new ArrayList<>();
+                    merges.add(node(next(i)));
+                } else if (kinds[i] == SCALAR) {
+                    map.put(values[i], node(next(i)));
+                } else if (kinds[i] == ALIAS && node(i).isString()) {
+                    map.put(node(i).asString().value(), node(next(i)));
+                } else {
+                    throw new IllegalStateException("YAML map keys must be scalars.");
+                }
+            }
+            return merges == null ? map : merge(map, merges);
+        }
+    }
+}
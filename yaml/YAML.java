@@ -17,12 +17,12 @@
 
 package com.vaticle.typedb.common.yaml;
 
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.StringReader;
+import java.nio.channels.ReadableByteChannel;
 import java.nio.file.Path;
-import java.util.ArrayList;
+import java.time.OffsetDateTime;
 import java.util.Iterator;
-import java.util.LinkedHashMap;
 import java.util.Set;
 import java.util.function.BiConsumer;
 
@@ -31,25 +31,34 @@ import static com.vaticle.typedb.common.util.Objects.className;
 public abstract class YAML {
 
     public static YAML load(java.lang.String yaml) {
-        return wrap(new org.yaml.snakeyaml.Yaml().load(yaml));
+        return Loader.load(new StringReader(yaml));
     }
 
+    /**
+     * Load a UTF-8 file, which is read in full and closed before parsing begins. Large files are memory-mapped rather
+     * than copied through a heap buffer.
+     */
     public static YAML load(Path filePath) throws FileNotFoundException {
-        FileInputStream inputStream = new FileInputStream(filePath.toFile());
-        return wrap(new org.yaml.snakeyaml.Yaml().load(inputStream));
+        return Loader.load(Loader.reader(filePath));
     }
 
-    private static YAML wrap(Object yaml) {
-        if (yaml == null) return null;
-        else if (yaml instanceof java.util.Map) {
-            assert ((java.util.Map<Object, Object>) yaml).keySet().stream().allMatch(key -> key instanceof java.lang.String);
-            return Map.wrap((java.util.Map<java.lang.String, Object>) yaml);
-        } else if (yaml instanceof java.util.List) return List.wrap((java.util.List<Object>) yaml);
-        else if (yaml instanceof java.lang.String) return new String((java.lang.String) yaml);
-        else if (yaml instanceof java.lang.Integer) return new Int((int) yaml);
-        else if (yaml instanceof java.lang.Double) return new Double((double) yaml);
-        else if (yaml instanceof java.lang.Boolean) return new Boolean((boolean) yaml);
-        else throw new IllegalStateException();
+    /**
+     * Load a UTF-8 document from a channel, read through a large buffer. The channel is left open.
+     */
+    public static YAML load(ReadableByteChannel channel) {
+        return Loader.load(Loader.reader(channel));
+    }
+
+    /**
+     * Load a document whose maps and lists are only built when first accessed, so that reading a few keys of a large
+     * document does not build the rest of it. The whole document is still parsed up front.
+     */
+    public static YAML loadLazily(java.lang.String yaml) {
+        return Loader.loadLazily(new StringReader(yaml));
+    }
+
+    public static YAML loadLazily(Path filePath) throws FileNotFoundException {
+        return Loader.loadLazily(Loader.reader(filePath));
     }
 
     public boolean isMap() {
@@ -100,6 +109,54 @@ public abstract class YAML {
         throw classCastException(getClass(), Boolean.class);
     }
 
+    public boolean isLong() {
+        return false;
+    }
+
+    public Long asLong() {
+        throw classCastException(getClass(), Long.class);
+    }
+
+    /**
+     * @return the value of an {@link Int} or a {@link Long}, widened to a long, since the loader only produces a
+     * {@link Long} for values that do not fit an int
+     */
+    public long longValue() {
+        throw classCastException(getClass(), Long.class);
+    }
+
+    public boolean isBigInteger() {
+        return false;
+    }
+
+    public BigInteger asBigInteger() {
+        throw classCastException(getClass(), BigInteger.class);
+    }
+
+    public boolean isBigDecimal() {
+        return false;
+    }
+
+    public BigDecimal asBigDecimal() {
+        throw classCastException(getClass(), BigDecimal.class);
+    }
+
+    public boolean isTimestamp() {
+        return false;
+    }
+
+    public Timestamp asTimestamp() {
+        throw classCastException(getClass(), Timestamp.class);
+    }
+
+    public boolean isNull() {
+        return false;
+    }
+
+    public Null asNull() {
+        throw classCastException(getClass(), Null.class);
+    }
+
     private ClassCastException classCastException(Class<?> from, Class<?> to) {
         return new ClassCastException(java.lang.String.format("Illegal cast from '%s' to '%s'.", className(from),
                 className(to)));
@@ -113,14 +170,6 @@ public abstract class YAML {
             this.map = map;
         }
 
-        private static Map wrap(java.util.Map<java.lang.String, Object> source) {
-            java.util.Map<java.lang.String, YAML> map = new LinkedHashMap<>();
-            for (java.lang.String key : source.keySet()) {
-                map.put(key, YAML.wrap(source.get(key)));
-            }
-            return new Map(map);
-        }
-
         public java.util.Map<java.lang.String, YAML> content() {
             return map;
         }
@@ -160,18 +209,10 @@ public abstract class YAML {
 
         private final java.util.List<YAML> list;
 
-        private List(java.util.List<YAML> list) {
+        List(java.util.List<YAML> list) {
             this.list = list;
         }
 
-        static List wrap(java.util.List<Object> source) {
-            java.util.List<YAML> yamlList = new ArrayList<>();
-            for (Object e : source) {
-                yamlList.add(YAML.wrap(e));
-            }
-            return new List(yamlList);
-        }
-
         public java.util.List<YAML> content() {
             return list;
         }
@@ -195,7 +236,7 @@ public abstract class YAML {
 
         private final java.lang.String value;
 
-        private String(java.lang.String string) {
+        String(java.lang.String string) {
             this.value = string;
         }
 
@@ -221,12 +262,28 @@ public abstract class YAML {
 
     public static class Int extends YAML {
 
+        private static final int CACHE_LOW = -128;
+        private static final int CACHE_HIGH = 1024;
+        private static final Int[] CACHE = new Int[CACHE_HIGH - CACHE_LOW + 1];
+
+        static {
+            for (int i = 0; i < CACHE.length; i++) CACHE[i] = new Int(CACHE_LOW + i);
+        }
+
         private final int value;
 
         private Int(int value) {
             this.value = value;
         }
 
+        /**
+         * @return a shared instance for values from -128 to 1024, which covers most numbers in configuration
+         */
+        public static Int of(int value) {
+            if (value >= CACHE_LOW && value <= CACHE_HIGH) return CACHE[value - CACHE_LOW];
+            return new Int(value);
+        }
+
         public int value() {
             return value;
         }
@@ -241,6 +298,11 @@ public abstract class YAML {
             return this;
         }
 
+        @Override
+        public long longValue() {
+            return value;
+        }
+
         @Override
         public java.lang.String toString() {
             return value + "[int]";
@@ -251,7 +313,7 @@ public abstract class YAML {
 
         private final double value;
 
-        private Double(double value) {
+        Double(double value) {
             this.value = value;
         }
 
@@ -277,12 +339,19 @@ public abstract class YAML {
 
     public static class Boolean extends YAML {
 
+        public static final Boolean TRUE = new Boolean(true);
+        public static final Boolean FALSE = new Boolean(false);
+
         private final boolean value;
 
         private Boolean(boolean value) {
             this.value = value;
         }
 
+        public static Boolean of(boolean value) {
+            return value ? TRUE : FALSE;
+        }
+
         public boolean value() {
             return value;
         }
@@ -302,4 +371,147 @@ public abstract class YAML {
             return value + "[boolean]";
         }
     }
+
+    public static class Long extends YAML {
+
+        private final long value;
+
+        Long(long value) {
+            this.value = value;
+        }
+
+        public long value() {
+            return value;
+        }
+
+        @Override
+        public boolean isLong() {
+            return true;
+        }
+
+        @Override
+        public Long asLong() {
+            return this;
+        }
+
+        @Override
+        public long longValue() {
+            return value;
+        }
+
+        @Override
+        public java.lang.String toString() {
+            return value + "[long]";
+        }
+    }
+
+    public static class BigInteger extends YAML {
+
+        private final java.math.BigInteger value;
+
+        BigInteger(java.math.BigInteger value) {
+            this.value = value;
+        }
+
+        public java.math.BigInteger value() {
+            return value;
+        }
+
+        @Override
+        public boolean isBigInteger() {
+            return true;
+        }
+
+        @Override
+        public BigInteger asBigInteger() {
+            return this;
+        }
+
+        @Override
+        public java.lang.String toString() {
+            return value + "[biginteger]";
+        }
+    }
+
+    public static class BigDecimal extends YAML {
+
+        private final java.math.BigDecimal value;
+
+        BigDecimal(java.math.BigDecimal value) {
+            this.value = value;
+        }
+
+        public java.math.BigDecimal value() {
+            return value;
+        }
+
+        @Override
+        public boolean isBigDecimal() {
+            return true;
+        }
+
+        @Override
+        public BigDecimal asBigDecimal() {
+            return this;
+        }
+
+        @Override
+        public java.lang.String toString() {
+            return value + "[bigdecimal]";
+        }
+    }
+
+    public static class Timestamp extends YAML {
+
+        private final OffsetDateTime value;
+
+        Timestamp(OffsetDateTime value) {
+            this.value = value;
+        }
+
+        public OffsetDateTime value() {
+            return value;
+        }
+
+        @Override
+        public boolean isTimestamp() {
+            return true;
+        }
+
+        @Override
+        public Timestamp asTimestamp() {
+            return this;
+        }
+
+        @Override
+        public java.lang.String toString() {
+            return value + "[timestamp]";
+        }
+    }
+
+    /**
+     * An explicit null value, such as {@code key: ~}, as distinct from an absent key.
+     */
+    public static class Null extends YAML {
+
+        public static final Null NULL = new Null();
+
+        private Null() {
+        }
+
+        @Override
+        public boolean isNull() {
+            return true;
+        }
+
+        @Override
+        public Null asNull() {
+            return this;
+        }
+
+        @Override
+        public java.lang.String toString() {
+            return "null[null]";
+        }
+    }
 }
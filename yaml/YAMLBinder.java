@@ -0,0 +1,448 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.vaticle.typedb.common.yaml;
+
+import com.vaticle.typedb.common.exception.ErrorMessage;
+import com.vaticle.typedb.common.exception.ErrorMessageException;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Proxy;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static com.vaticle.typedb.common.util.Objects.className;
+
+/**
+ * Binds a {@link YAML.Map} onto a record or an interface, so that configuration is read through typed accessors
+ * rather than by walking the tree. The binding plan for each type, holding each property's key and converter, is
+ * compiled once and cached, and all values are converted up front at binding time.
+ *
+ * <ul>
+ * <li>A record (Java 16+) is constructed through a method handle to its canonical constructor, so reading a bound
+ * value is a plain field read.</li>
+ * <li>An interface is implemented by a proxy over its no-argument abstract methods, which returns the converted
+ * values from an array, and invokes default methods as written.</li>
+ * </ul>
+ *
+ * A property named {@code maxConnections} is read from the key {@code maxConnections}, {@code max-connections} or
+ * {@code max_connections}, in that order of preference. Properties may be strings, ints, longs, doubles, booleans,
+ * big integers and decimals, timestamps as {@code OffsetDateTime} or {@code Instant}, enums, nested records or
+ * interfaces, {@code List}s, {@code Map}s with string keys, {@code YAML} nodes themselves, or {@code Optional}s of any
+ * of these for keys that may be absent, where an explicit null counts as absent. Failures are reported as a
+ * {@link BindingException} naming the path of the offending key.
+ */
+public class YAMLBinder {
+
+    private static final ClassValue<Plan> PLANS = new ClassValue<Plan>() {
+        @Override
+        protected Plan computeValue(Class<?> type) {
+            return Plan.compile(type);
+        }
+    };
+
+    public static <T> T bind(YAML.Map yaml, Class<T> type) {
+        return type.cast(PLANS.get(type).bind(yaml, null));
+    }
+
+    private interface Converter {
+
+        Object convert(YAML yaml, Path path);
+    }
+
+    /**
+     * A location in the tree being bound, kept as a linked list and only rendered when reporting an error.
+     */
+    private static class Path {
+
+        private final Path parent;
+        private final String key;
+        private final int index;
+
+        private Path(Path parent, String key, int index) {
+            this.parent = parent;
+            this.key = key;
+            this.index = index;
+        }
+
+        private static Path key(Path parent, String key) {
+            return new Path(parent, key, -1);
+        }
+
+        private static Path index(Path parent, int index) {
+            return new Path(parent, null, index);
+        }
+
+        @Override
+        public String toString() {
+            String prefix = parent == null ? "" : parent.toString();
+            if (key == null) return prefix + "[" + index + "]";
+            else return prefix.isEmpty() ? key : prefix + "." + key;
+        }
+    }
+
+    private static abstract class Plan {
+
+        final String[][] keys;
+        final Converter[] converters;
+        final boolean[] optional;
+
+        Plan(int properties) {
+            keys = new String[properties][];
+            converters = new Converter[properties];
+            optional = new boolean[properties];
+        }
+
+        private static Plan compile(Class<?> type) {
+            if (isRecord(type)) return new RecordPlan(type);
+            else if (type.isInterface()) return new InterfacePlan(type);
+            throw new BindingException(Error.UNSUPPORTED_TYPE, className(type), "<root>");
+        }
+
+        void property(int index, String name, Type type) {
+            String kebab = name.replaceAll("([a-z0-9])([A-Z])", "$1-$2").toLowerCase();
+            keys[index] = kebab.equals(name) ? new String[]{name} :
+                    new String[]{name, kebab, kebab.replace('-', '_')};
+            if (type instanceof ParameterizedType && ((ParameterizedType) type).getRawType() == Optional.class) {
+                optional[index] = true;
+                type = ((ParameterizedType) type).getActualTypeArguments()[0];
+            }
+            converters[index] = converter(type, name);
+        }
+
+        Object bind(YAML yaml, Path path) {
+            if (yaml == null || !yaml.isMap()) throw mismatch(yaml, "a map", path);
+            YAML.Map map = yaml.asMap();
+            Object[] values = new Object[keys.length];
+            for (int i = 0; i < keys.length; i++) {
+                String key = keys[i][0];
+                YAML value = null;
+                for (String candidate : keys[i]) {
+                    value = map.get(candidate);
+                    if (value != null) {
+                        key = candidate;
+                        break;
+                    }
+                }
+                if (value != null && value.isNull()) value = null;
+                if (value == null && optional[i]) {
+                    values[i] = Optional.empty();
+                } else if (value == null) {
+                    throw new BindingException(Error.MISSING_KEY, Path.key(path, key));
+                } else {
+                    Object converted = converters[i].convert(value, Path.key(path, key));
+                    values[i] = optional[i] ? Optional.of(converted) : converted;
+                }
+            }
+            return create(values, path);
+        }
+
+        abstract Object create(Object[] values, Path path);
+    }
+
+    private static class RecordPlan extends Plan {
+
+        private final MethodHandle constructor;
+
+        private RecordPlan(Class<?> type) {
+            super(recordComponents(type).length);
+            Object[] components = recordComponents(type);
+            Class<?>[] parameterTypes = new Class<?>[components.length];
+            try {
+                Method getName = components.getClass().getComponentType().getMethod("getName");
+                Method getType = components.getClass().getComponentType().getMethod("getType");
+                Method getGenericType = components.getClass().getComponentType().getMethod("getGenericType");
+                for (int i = 0; i < components.length; i++) {
+                    parameterTypes[i] = (Class<?>) getType.invoke(components[i]);
+                    property(i, (String) getName.invoke(components[i]),
+                            (Type) getGenericType.invoke(components[i]));
+                }
+                Constructor<?> canonical = type.getDeclaredConstructor(parameterTypes);
+                canonical.setAccessible(true);
+                constructor = MethodHandles.lookup().unreflectConstructor(canonical)
+                        .asSpreader(Object[].class, components.length);
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                if (e instanceof BindingException) throw (BindingException) e;
+                throw new BindingException(e, Error.UNSUPPORTED_TYPE, className(type), "<root>");
+            }
+        }
+
+        @Override
+        Object create(Object[] values, Path path) {
+            try {
+                return constructor.invoke(values);
+            } catch (RuntimeException | java.lang.Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+
+    /**
+     * Dispatches each proxied call to a property's index or to a default method's handle, both resolved once when the
+     * plan is compiled. A call without arguments is looked up by its method's name, which is interned, in an identity
+     * map, so that it needs neither hashing nor comparing of the method's signature.
+     */
+    private static class InterfacePlan extends Plan {
+
+        private static final Object[] NO_ARGUMENTS = new Object[0];
+        private static final MethodType DEFAULT_METHOD_TYPE =
+                MethodType.methodType(Object.class, Object.class, Object[].class);
+
+        private final Class<?> type;
+        // each method's property index as an Integer, or default method handle, by name for methods without parameters
+        private final IdentityHashMap<String, Object> dispatchByName = new IdentityHashMap<>();
+        private final HashMap<Method, Object> dispatchByMethod = new HashMap<>();
+
+        private InterfacePlan(Class<?> type) {
+            super(properties(type).length);
+            this.type = type;
+            Method[] properties = properties(type);
+            for (int i = 0; i < properties.length; i++) {
+                dispatch(properties[i], i);
+                property(i, properties[i].getName(), properties[i].getGenericReturnType());
+            }
+            try {
+                MethodHandles.Lookup lookup = MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+                for (Method method : type.getMethods()) {
+                    if (!method.isDefault()) continue;
+                    dispatch(method, lookup.unreflectSpecial(method, type)
+                            .asSpreader(Object[].class, method.getParameterCount()).asType(DEFAULT_METHOD_TYPE));
+                }
+            } catch (ReflectiveOperationException | RuntimeException e) {
+                if (e instanceof BindingException) throw (BindingException) e;
+                throw new BindingException(e, Error.UNSUPPORTED_TYPE, className(type), "<root>");
+            }
+        }
+
+        private static Method[] properties(Class<?> type) {
+            return Arrays.stream(type.getMethods())
+                    .filter(method -> Modifier.isAbstract(method.getModifiers()) && method.getParameterCount() == 0)
+                    .sorted((first, second) -> first.getName().compareTo(second.getName()))
+                    .toArray(Method[]::new);
+        }
+
+        private void dispatch(Method method, Object target) {
+            if (method.getParameterCount() == 0) dispatchByName.put(method.getName(), target);
+            dispatchByMethod.put(method, target);
+        }
+
+        @Override
+        Object create(Object[] values, Path path) {
+            InvocationHandler handler = (proxy, method, arguments) -> {
+                Object target = arguments == null ? dispatchByName.get(method.getName()) : null;
+                if (target == null) target = dispatchByMethod.get(method);
+                if (target instanceof Integer) {
+                    return values[(Integer) target];
+                } else if (target != null) {
+                    Object[] parameters = arguments == null ? NO_ARGUMENTS : arguments;
+                    return (Object) ((MethodHandle) target).invokeExact(proxy, parameters);
+                }
+                switch (method.getName()) {
+                    case "equals":
+                        return proxy == arguments[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return className(type) + Arrays.toString(values);
+                    default:
+                        throw new UnsupportedOperationException(method.toString());
+                }
+            };
+            return Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, handler);
+        }
+    }
+
+    private static boolean isRecord(Class<?> type) {
+        try {
+            return (boolean) Class.class.getMethod("isRecord").invoke(type);
+        } catch (ReflectiveOperationException e) {
+            return false; // before Java 16
+        }
+    }
+
+    private static Object[] recordComponents(Class<?> type) {
+        try {
+            return (Object[]) Class.class.getMethod("getRecordComponents").invoke(type);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Converter converter(Type type, String property) {
+        if (type == String.class) {
+            return (yaml, path) -> {
+                if (!yaml.isString()) throw mismatch(yaml, "a string", path);
+                return yaml.asString().value();
+            };
+        } else if (type == int.class || type == Integer.class) {
+            return (yaml, path) -> {
+                if (!yaml.isInt()) throw mismatch(yaml, "an int", path);
+                return yaml.asInt().value();
+            };
+        } else if (type == long.class || type == Long.class) {
+            return (yaml, path) -> {
+                if (!yaml.isInt() && !yaml.isLong()) throw mismatch(yaml, "a long", path);
+                return yaml.longValue();
+            };
+        } else if (type == double.class || type == Double.class) {
+            return (yaml, path) -> {
+                if (yaml.isDouble()) return yaml.asDouble().value();
+                else if (yaml.isInt() || yaml.isLong()) return (double) yaml.longValue();
+                throw mismatch(yaml, "a double", path);
+            };
+        } else if (type == BigInteger.class) {
+            return (yaml, path) -> {
+                if (yaml.isBigInteger()) return yaml.asBigInteger().value();
+                else if (yaml.isInt() || yaml.isLong()) return BigInteger.valueOf(yaml.longValue());
+                throw mismatch(yaml, "an integer", path);
+            };
+        } else if (type == BigDecimal.class) {
+            return (yaml, path) -> {
+                if (yaml.isBigDecimal()) return yaml.asBigDecimal().value();
+                else if (yaml.isDouble() && Double.isFinite(yaml.asDouble().value())) {
+                    return BigDecimal.valueOf(yaml.asDouble().value());
+                } else if (yaml.isBigInteger()) return new BigDecimal(yaml.asBigInteger().value());
+                else if (yaml.isInt() || yaml.isLong()) return BigDecimal.valueOf(yaml.longValue());
+                throw mismatch(yaml, "a finite number", path);
+            };
+        } else if (type == OffsetDateTime.class || type == Instant.class) {
+            return (yaml, path) -> {
+                if (!yaml.isTimestamp()) throw mismatch(yaml, "a timestamp", path);
+                OffsetDateTime timestamp = yaml.asTimestamp().value();
+                return type == Instant.class ? timestamp.toInstant() : timestamp;
+            };
+        } else if (type == boolean.class || type == Boolean.class) {
+            return (yaml, path) -> {
+                if (!yaml.isBoolean()) throw mismatch(yaml, "a boolean", path);
+                return yaml.asBoolean().value();
+            };
+        } else if (type instanceof Class<?> && ((Class<?>) type).isEnum()) {
+            return enumConverter((Class<?>) type);
+        } else if (type instanceof Class<?> && YAML.class.isAssignableFrom((Class<?>) type)) {
+            Class<?> yamlType = (Class<?>) type;
+            return (yaml, path) -> {
+                if (!yamlType.isInstance(yaml)) throw mismatch(yaml, "a " + className(yamlType), path);
+                return yaml;
+            };
+        } else if (type instanceof ParameterizedType && ((ParameterizedType) type).getRawType() == List.class) {
+            Converter element = converter(((ParameterizedType) type).getActualTypeArguments()[0], property);
+            return (yaml, path) -> {
+                if (!yaml.isList()) throw mismatch(yaml, "a list", path);
+                List<YAML> source = yaml.asList().content();
+                List<Object> list = new ArrayList<>(source.size());
+                for (int i = 0; i < source.size(); i++) {
+                    Path elementPath = Path.index(path, i);
+                    if (source.get(i) == null || source.get(i).isNull()) throw mismatch(null, "a value", elementPath);
+                    list.add(element.convert(source.get(i), elementPath));
+                }
+                return Collections.unmodifiableList(list);
+            };
+        } else if (type instanceof ParameterizedType && ((ParameterizedType) type).getRawType() == Map.class &&
+                ((ParameterizedType) type).getActualTypeArguments()[0] == String.class) {
+            Converter value = converter(((ParameterizedType) type).getActualTypeArguments()[1], property);
+            return (yaml, path) -> {
+                if (!yaml.isMap()) throw mismatch(yaml, "a map", path);
+                Map<String, Object> map = new LinkedHashMap<>();
+                yaml.asMap().forEach((key, entry) -> {
+                    if (entry == null || entry.isNull()) throw mismatch(null, "a value", Path.key(path, key));
+                    map.put(key, value.convert(entry, Path.key(path, key)));
+                });
+                return Collections.unmodifiableMap(map);
+            };
+        } else if (type instanceof Class<?> && (isRecord((Class<?>) type) || ((Class<?>) type).isInterface())) {
+            Class<?> nested = (Class<?>) type;
+            // resolved on first use, so that recursive types do not recurse while compiling
+            return (yaml, path) -> PLANS.get(nested).bind(yaml, path);
+        }
+        throw new BindingException(Error.UNSUPPORTED_TYPE, type.getTypeName(), property);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Converter enumConverter(Class<?> type) {
+        Map<String, Object> constants = new HashMap<>();
+        for (Object constant : type.getEnumConstants()) {
+            String name = ((Enum) constant).name();
+            constants.put(name, constant);
+            constants.putIfAbsent(name.toLowerCase().replace('_', '-'), constant);
+            constants.putIfAbsent(name.toLowerCase(), constant);
+        }
+        return (yaml, path) -> {
+            Object constant = yaml.isString() ? constants.get(yaml.asString().value()) : null;
+            if (constant == null) {
+                throw new BindingException(Error.INVALID_ENUM, path, Arrays.toString(type.getEnumConstants()), yaml);
+            }
+            return constant;
+        };
+    }
+
+    private static BindingException mismatch(YAML yaml, String expected, Path path) {
+        return new BindingException(Error.INVALID_TYPE, path, expected, yaml == null ? "null" : className(yaml.getClass()));
+    }
+
+    public static class BindingException extends ErrorMessageException {
+
+        private static final long serialVersionUID = 1L;
+
+        private BindingException(ErrorMessage errorMessage, Object... parameters) {
+            super(errorMessage, parameters);
+        }
+
+        private BindingException(Throwable cause, ErrorMessage errorMessage, Object... parameters) {
+            super(cause, errorMessage, parameters);
+        }
+    }
+
+    public static class Error extends ErrorMessage {
+
+        public static final Error MISSING_KEY =
+                new Error(1, "The configuration key '%s' is missing.");
+        public static final Error INVALID_TYPE =
+                new Error(2, "The configuration value at '%s' must be %s, but was '%s'.");
+        public static final Error INVALID_ENUM =
+                new Error(3, "The configuration value at '%s' must be one of %s, but was '%s'.");
+        public static final Error UNSUPPORTED_TYPE =
+                new Error(4, "The type '%s' of '%s' cannot be bound from YAML.");
+
+        private static final String codePrefix = "YML";
+        private static final String messagePrefix = "Invalid YAML Configuration";
+
+        private Error(int number, String message) {
+            super(codePrefix, number, messagePrefix, message);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.vaticle.typedb.common.yaml;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded, least-recently-used cache of parsed YAML files, keyed by path. Cached trees are deeply immutable, so one
+ * parsed tree can be shared across threads; mutating one throws {@link UnsupportedOperationException}.
+ *
+ * A cache from {@link #create(int)} checks each file's modification time and size on every lookup, and re-parses it
+ * if either changed. A cache from {@link #createWatching(int)} instead registers each file's directory with a
+ * {@link WatchService}, and drains pending change events on every lookup, so an unchanged file costs no file system
+ * access at all. A directory stops being watched once none of its files are cached. Watch services may be slow to
+ * report changes on some platforms.
+ */
+public class YAMLCache implements AutoCloseable {
+
+    private final int maxSize;
+    private final WatchService watchService;
+    private final Map<Path, Watch> watches;
+    private final LinkedHashMap<Path, Cached> entries;
+    // advanced on every invalidation, so a load that raced with one is returned but not cached
+    private long generation;
+
+    private YAMLCache(int maxSize, WatchService watchService) {
+        if (maxSize <= 0) throw new IllegalArgumentException("Cache size must be positive.");
+        this.maxSize = maxSize;
+        this.watchService = watchService;
+        this.watches = new HashMap<>();
+        this.entries = new LinkedHashMap<Path, Cached>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, Cached> eldest) {
+                if (size() > YAMLCache.this.maxSize) YAMLCache.this.remove(eldest.getKey());
+                return false;
+            }
+        };
+    }
+
+    public static YAMLCache create(int maxSize) {
+        return new YAMLCache(maxSize, null);
+    }
+
+    public static YAMLCache createWatching(int maxSize) throws IOException {
+        return new YAMLCache(maxSize, FileSystems.getDefault().newWatchService());
+    }
+
+    /**
+     * @return the immutable parsed contents of the file, loading it if it is not cached or has changed since it was
+     */
+    public YAML get(Path filePath) throws FileNotFoundException {
+        Path path = filePath.toAbsolutePath().normalize();
+        Cached entry;
+        long loadGeneration;
+        synchronized (this) {
+            if (watchService != null) drainWatchEvents();
+            entry = entries.get(path);
+            loadGeneration = generation;
+        }
+        BasicFileAttributes attributes = null;
+        if (watchService == null) {
+            attributes = attributes(path);
+            if (entry != null && entry.matches(attributes)) return entry.yaml;
+        } else if (entry != null) {
+            return entry.yaml;
+        } else {
+            watch(path.getParent());
+        }
+        Cached loaded;
+        try {
+            loaded = new Cached(Loader.loadImmutable(Loader.reader(path)), attributes);
+        } catch (FileNotFoundException | RuntimeException | Error e) {
+            // a file that fails to load is not cached, so nothing else may be holding its directory's watch
+            if (watchService != null) {
+                synchronized (this) {
+                    unwatchIfUnused(path.getParent());
+                }
+            }
+            throw e;
+        }
+        synchronized (this) {
+            if (generation == loadGeneration) put(path, loaded);
+            else if (watchService != null) unwatchIfUnused(path.getParent());
+        }
+        return loaded.yaml;
+    }
+
+    public synchronized void invalidate(Path filePath) {
+        generation++;
+        remove(filePath.toAbsolutePath().normalize());
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        entries.clear();
+        watches.values().forEach(watch -> watch.key.cancel());
+        watches.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        entries.clear();
+        watches.clear();
+        if (watchService != null) watchService.close();
+    }
+
+    private static BasicFileAttributes attributes(Path path) throws FileNotFoundException {
+        try {
+            return Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException(path.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void put(Path path, Cached loaded) {
+        assert Thread.holdsLock(this);
+        if (watchService == null) {
+            entries.put(path, loaded);
+        } else {
+            // the directory is unwatched if it is not watched now, so a change to the file may have been missed
+            Watch watch = watches.get(path.getParent());
+            if (watch == null) return;
+            if (entries.put(path, loaded) == null) watch.entries++;
+        }
+    }
+
+    private void remove(Path path) {
+        assert Thread.holdsLock(this);
+        if (entries.remove(path) != null && watchService != null) {
+            Watch watch = watches.get(path.getParent());
+            if (watch != null) watch.entries--;
+            unwatchIfUnused(path.getParent());
+        }
+    }
+
+    private void unwatchIfUnused(Path directory) {
+        assert Thread.holdsLock(this);
+        Watch watch = watches.get(directory);
+        if (watch == null || watch.entries > 0) return;
+        watch.key.cancel();
+        watches.remove(directory);
+        // a load in flight in this directory can no longer see changes, so must not be cached
+        generation++;
+    }
+
+    private synchronized void watch(Path directory) {
+        if (directory == null || watches.containsKey(directory)) return;
+        try {
+            watches.put(directory, new Watch(directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE, StandardWatchEventKinds.ENTRY_MODIFY)));
+        } catch (NoSuchFileException e) {
+            // the file cannot exist either, which loading it will report
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void drainWatchEvents() {
+        assert Thread.holdsLock(this);
+        try {
+            WatchKey key;
+            while ((key = watchService.poll()) != null) {
+                generation++;
+                Path directory = (Path) key.watchable();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) removeAll(directory);
+                    else remove(directory.resolve((Path) event.context()));
+                }
+                if (!key.reset()) {
+                    removeAll(directory);
+                    Watch watch = watches.get(directory);
+                    if (watch != null && watch.key == key) watches.remove(directory);
+                }
+            }
+        } catch (ClosedWatchServiceException e) {
+            throw new IllegalStateException("YAML cache has been closed.", e);
+        }
+    }
+
+    private void removeAll(Path directory) {
+        assert Thread.holdsLock(this);
+        for (Path path : new ArrayList<>(entries.keySet())) {
+            if (directory.equals(path.getParent())) remove(path);
+        }
+    }
+
+    private static class Cached {
+
+        private final YAML yaml;
+        private final FileTime lastModified;
+        private final long size;
+
+        private Cached(YAML yaml, BasicFileAttributes attributes) {
+            this.yaml = yaml;
+            this.lastModified = attributes != null ? attributes.lastModifiedTime() : null;
+            this.size = attributes != null ? attributes.size() : -1;
+        }
+
+        private boolean matches(BasicFileAttributes attributes) {
+            return attributes.lastModifiedTime().equals(lastModified) && attributes.size() == size;
+        }
+    }
+
+    private static class Watch {
+
+        private final WatchKey key;
+        // the number of cached files in the directory
+        private int entries;
+
+        private Watch(WatchKey key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.vaticle.typedb.common.yaml;
+
+import org.yaml.snakeyaml.nodes.NodeId;
+import org.yaml.snakeyaml.nodes.Tag;
+import org.yaml.snakeyaml.resolver.Resolver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.Iterator;
+import java.util.Map;
+
+import static java.time.format.DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+
+/**
+ * Writes a {@link YAML} tree as block-style YAML text, straight to an {@link Appendable} as it walks the tree. Strings
+ * are written plain where that reads back as the same string, and double-quoted otherwise; numbers are written so that
+ * they read back with the same type. Loading the output with {@link YAML#load(String)} yields an equal tree.
+ */
+public class YAMLEmitter {
+
+    private static final int INDENT = 2;
+    private static final String INDICATORS = "-?:,[]{}#&*!|>'\"%@`";
+
+    private final Appendable out;
+    private final Resolver resolver = new Resolver();
+
+    private YAMLEmitter(Appendable out) {
+        this.out = out;
+    }
+
+    public static void emit(YAML yaml, Appendable out) {
+        try {
+            new YAMLEmitter(out).document(yaml);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static String emit(YAML yaml) {
+        StringBuilder builder = new StringBuilder();
+        emit(yaml, builder);
+        return builder.toString();
+    }
+
+    private void document(YAML yaml) throws IOException {
+        if (isBlock(yaml) && yaml.isMap()) map(yaml.asMap(), 0, false);
+        else if (isBlock(yaml)) list(yaml.asList(), 0, false);
+        else scalar(yaml).append('\n');
+    }
+
+    private static boolean isBlock(YAML yaml) {
+        return yaml != null && ((yaml.isMap() && !yaml.asMap().content().isEmpty()) ||
+                (yaml.isList() && !yaml.asList().content().isEmpty()));
+    }
+
+    /**
+     * @param inline whether the first entry continues the current line, after a list item's dash
+     */
+    private void map(YAML.Map map, int indent, boolean inline) throws IOException {
+        for (Map.Entry<String, YAML> entry : map.content().entrySet()) {
+            if (!inline) indent(indent);
+            inline = false;
+            string(entry.getKey()).append(':');
+            value(entry.getValue(), indent);
+        }
+    }
+
+    private void list(YAML.List list, int indent, boolean inline) throws IOException {
+        Iterator<YAML> iterator = list.iterator();
+        while (iterator.hasNext()) {
+            YAML element = iterator.next();
+            if (!inline) indent(indent);
+            inline = false;
+            out.append("- ");
+            if (isBlock(element) && element.isMap()) map(element.asMap(), indent + INDENT, true);
+            else if (isBlock(element)) list(element.asList(), indent + INDENT, true);
+            else scalar(element).append('\n');
+        }
+    }
+
+    private void value(YAML value, int indent) throws IOException {
+        if (isBlock(value)) {
+            out.append('\n');
+            if (value.isMap()) map(value.asMap(), indent + INDENT, false);
+            else list(value.asList(), indent + INDENT, false);
+        } else {
+            out.append(' ');
+            scalar(value).append('\n');
+        }
+    }
+
+    private void indent(int indent) throws IOException {
+        for (int i = 0; i < indent; i++) out.append(' ');
+    }
+
+    private Appendable scalar(YAML yaml) throws IOException {
+        if (yaml == null || yaml.isNull()) return out.append("null");
+        else if (yaml.isMap()) return out.append("{}");
+        else if (yaml.isList()) return out.append("[]");
+        else if (yaml.isString()) return string(yaml.asString().value());
+        else if (yaml.isInt()) return out.append(Integer.toString(yaml.asInt().value()));
+        else if (yaml.isDouble()) return out.append(doubleToString(yaml.asDouble().value()));
+        else if (yaml.isBoolean()) return out.append(yaml.asBoolean().value() ? "true" : "false");
+        else if (yaml.isLong()) return out.append(Long.toString(yaml.asLong().value()));
+        else if (yaml.isBigInteger()) return out.append(yaml.asBigInteger().value().toString());
+        else if (yaml.isBigDecimal()) return out.append(decimalToString(yaml.asBigDecimal().value()));
+        else if (yaml.isTimestamp()) return out.append(ISO_OFFSET_DATE_TIME.format(yaml.asTimestamp().value()));
+        else throw new IllegalStateException();
+    }
+
+    /**
+     * Write a double in a form YAML 1.1 resolves as a float: special values use YAML's spellings, and exponents carry
+     * an explicit sign.
+     */
+    static String doubleToString(double value) {
+        if (Double.isNaN(value)) return ".nan";
+        else if (value == Double.POSITIVE_INFINITY) return ".inf";
+        else if (value == Double.NEGATIVE_INFINITY) return "-.inf";
+        String string = Double.toString(value);
+        int exponent = string.indexOf('E');
+        if (exponent >= 0 && string.charAt(exponent + 1) != '-') {
+            string = string.substring(0, exponent + 1) + "+" + string.substring(exponent + 1);
+        }
+        return string;
+    }
+
+    /**
+     * Write a decimal with the point that YAML 1.1 requires of a float, so that it does not read back as an integer.
+     */
+    static String decimalToString(BigDecimal value) {
+        String string = value.toString();
+        if (string.indexOf('.') >= 0) return string;
+        int exponent = string.indexOf('E');
+        if (exponent < 0) return string + ".0";
+        else return string.substring(0, exponent) + ".0" + string.substring(exponent);
+    }
+
+    private Appendable string(String value) throws IOException {
+        if (isPlain(value)) return out.append(value);
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    out.append("\\\"");
+                    break;
+                case '\\':
+                    out.append("\\\\");
+                    break;
+                case '\n':
+                    out.append("\\n");
+                    break;
+                case '\t':
+                    out.append("\\t");
+                    break;
+                case '\r':
+                    out.append("\\r");
+                    break;
+                default:
+                    if (c < 0x20 || c == 0x7F || (c >= 0x80 && c < 0xA0) || c == 0xFEFF) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+            }
+        }
+        return out.append('"');
+    }
+
+    /**
+     * @return whether the string can be written unquoted and still be read back as the same string
+     */
+    private boolean isPlain(String value) {
+        if (value.isEmpty() || INDICATORS.indexOf(value.charAt(0)) >= 0) return false;
+        if (Character.isWhitespace(value.charAt(0)) || Character.isWhitespace(value.charAt(value.length() - 1))) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < 0x20 || c == 0x7F || (c >= 0x80 && c < 0xA0) || c == 0xFEFF) return false;
+            else if (c == ':' && (i + 1 == value.length() || value.charAt(i + 1) == ' ')) return false;
+            else if (c == '#' && value.charAt(i - 1) == ' ') return false;
+        }
+        return resolver.resolve(NodeId.scalar, value, true).equals(Tag.STR);
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+package com.vaticle.typedb.common.yaml;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+
+/**
+ * A compact binary encoding of a {@link YAML} tree, which can be memory-mapped and read back without any text parsing.
+ * Maps and lists record their encoded length, so a reader can skip over them: reading a snapshot only decodes the
+ * root, and each map or list decodes its own entries when its content is first accessed.
+ *
+ * The format is a 4-byte magic number and a version byte, then the root node. Each node is a tag byte followed by:
+ * nothing for null and booleans; a big-endian int, long or IEEE 754 double; a length-prefixed UTF-8 string, which
+ * also holds big numbers and timestamps in their text form; or, for a list or map, its element count, its encoded
+ * length in bytes, and its elements, with each map value preceded by its key as a length-prefixed UTF-8 string.
+ */
+public class YAMLSnapshot {
+
+    private static final int MAGIC = 0x59534e50; // "YSNP"
+    private static final byte VERSION = 1;
+
+    private static final byte NULL = 0;
+    private static final byte FALSE = 1;
+    private static final byte TRUE = 2;
+    private static final byte INT = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte STRING = 5;
+    private static final byte LIST = 6;
+    private static final byte MAP = 7;
+    private static final byte LONG = 8;
+    private static final byte BIG_INTEGER = 9;
+    private static final byte BIG_DECIMAL = 10;
+    private static final byte TIMESTAMP = 11;
+
+    private ByteBuffer buffer = ByteBuffer.allocate(1 << 12);
+
+    private YAMLSnapshot() {
+    }
+
+    /**
+     * @return a buffer, positioned at zero, holding the snapshot of {@code yaml}
+     */
+    public static ByteBuffer write(YAML yaml) {
+        YAMLSnapshot snapshot = new YAMLSnapshot();
+        snapshot.buffer.putInt(MAGIC).put(VERSION);
+        snapshot.node(yaml);
+        return snapshot.buffer.flip();
+    }
+
+    public static void write(YAML yaml, Path filePath) {
+        ByteBuffer bytes = write(yaml);
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.WRITE, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (bytes.hasRemaining()) channel.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Read a snapshot file by memory-mapping it. The mapping stays valid after the file is closed, for as long as any
+     * node read from it is reachable.
+     */
+    public static YAML read(Path filePath) throws FileNotFoundException {
+        try (FileChannel channel = FileChannel.open(filePath, StandardOpenOption.READ)) {
+            return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException(filePath.toString());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Read a snapshot from the buffer's position. The buffer must not be modified while nodes read from it are in use;
+     * its position and limit are not changed.
+     */
+    public static YAML read(ByteBuffer buffer) {
+        int start = buffer.position();
+        if (buffer.remaining() < 5 || buffer.getInt(start) != MAGIC) {
+            throw new IllegalArgumentException("The buffer does not hold a YAML snapshot.");
+        } else if (buffer.get(start + 4) != VERSION) {
+            throw new IllegalArgumentException(String.format("Unsupported YAML snapshot version '%d'.",
+                    buffer.get(start + 4)));
+        }
+        return new Reader(buffer.duplicate()).node(start + 5);
+    }
+
+    private void node(YAML yaml) {
+        ensure(9);
+        if (yaml == null || yaml.isNull()) {
+            buffer.put(NULL);
+        } else if (yaml.isBoolean()) {
+            buffer.put(yaml.asBoolean().value() ? TRUE : FALSE);
+        } else if (yaml.isInt()) {
+            buffer.put(INT).putInt(yaml.asInt().value());
+        } else if (yaml.isDouble()) {
+            buffer.put(DOUBLE).putDouble(yaml.asDouble().value());
+        } else if (yaml.isLong()) {
+            buffer.put(LONG).putLong(yaml.asLong().value());
+        } else if (yaml.isBigInteger()) {
+            buffer.put(BIG_INTEGER);
+            string(yaml.asBigInteger().value().toString());
+        } else if (yaml.isBigDecimal()) {
+            buffer.put(BIG_DECIMAL);
+            string(yaml.asBigDecimal().value().toString());
+        } else if (yaml.isTimestamp()) {
+            buffer.put(TIMESTAMP);
+            string(yaml.asTimestamp().value().toString());
+        } else if (yaml.isString()) {
+            buffer.put(STRING);
+            string(yaml.asString().value());
+        } else if (yaml.isList()) {
+            java.util.List<YAML> list = yaml.asList().content();
+            int lengthPosition = collectionHeader(LIST, list.size());
+            for (YAML element : list) node(element);
+            buffer.putInt(lengthPosition, buffer.position() - lengthPosition - 4);
+        } else if (yaml.isMap()) {
+            java.util.Map<String, YAML> map = yaml.asMap().content();
+            int lengthPosition = collectionHeader(MAP, map.size());
+            map.forEach((key, value) -> {
+                string(key);
+                node(value);
+            });
+            buffer.putInt(lengthPosition, buffer.position() - lengthPosition - 4);
+        } else {
+            throw new IllegalStateException();
+        }
+    }
+
+    /**
+     * @return the position of the encoded length, to be filled in once the elements are written
+     */
+    private int collectionHeader(byte tag, int size) {
+        buffer.put(tag).putInt(size);
+        int lengthPosition = buffer.position();
+        buffer.putInt(0);
+        return lengthPosition;
+    }
+
+    private void string(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        ensure(4 + bytes.length);
+        buffer.putInt(bytes.length).put(bytes);
+    }
+
+    private void ensure(int bytes) {
+        if (buffer.remaining() >= bytes) return;
+        ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+        buffer.flip();
+        grown.put(buffer);
+        buffer = grown;
+    }
+
+    /**
+     * Decodes nodes by absolute position, so that lazily decoded maps and lists can share one buffer.
+     */
+    private static class Reader {
+
+        private final ByteBuffer buffer;
+
+        private Reader(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        private YAML node(int position) {
+            switch (buffer.get(position)) {
+                case NULL:
+                    return YAML.Null.NULL;
+                case FALSE:
+                    return YAML.Boolean.FALSE;
+                case TRUE:
+                    return YAML.Boolean.TRUE;
+                case INT:
+                    return YAML.Int.of(buffer.getInt(position + 1));
+                case DOUBLE:
+                    return new YAML.Double(buffer.getDouble(position + 1));
+                case LONG:
+                    return new YAML.Long(buffer.getLong(position + 1));
+                case BIG_INTEGER:
+                    return new YAML.BigInteger(new BigInteger(string(position + 1)));
+                case BIG_DECIMAL:
+                    return new YAML.BigDecimal(new BigDecimal(string(position + 1)));
+                case TIMESTAMP:
+                    return new YAML.Timestamp(OffsetDateTime.parse(string(position + 1)));
+                case STRING:
+                    return new YAML.String(string(position + 1));
+                case LIST:
+                    return new YAML.List(new LazyList(() -> list(position)));
+                case MAP:
+                    return new YAML.Map(new LazyMap(() -> map(position)));
+                default:
+                    throw new IllegalStateException(String.format("Corrupt YAML snapshot at byte %d.", position));
+            }
+        }
+
+        private int next(int position) {
+            switch (buffer.get(position)) {
+                case NULL:
+                case FALSE:
+                case TRUE:
+                    return position + 1;
+                case INT:
+                    return position + 5;
+                case DOUBLE:
+                case LONG:
+                    return position + 9;
+                case STRING:
+                case BIG_INTEGER:
+                case BIG_DECIMAL:
+                case TIMESTAMP:
+                    return position + 5 + buffer.getInt(position + 1);
+                default:
+                    return position + 9 + buffer.getInt(position + 5);
+            }
+        }
+
+        private String string(int position) {
+            int length = buffer.getInt(position);
+            byte[] bytes = new byte[length];
+            ByteBuffer view = buffer.duplicate();
+            view.position(position + 4);
+            view.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private java.util.List<YAML> list(int position) {
+            int size = buffer.getInt(position + 1);
+            java.util.List<YAML> list = new ArrayList<>(size);
+            int element = position + 9;
+            for (int i = 0; i < size; i++) {
+                list.add(node(element));
+                element = next(element);
+            }
+            return list;
+        }
+
+        private java.util.Map<String, YAML> map(int position) {
+            int size = buffer.getInt(position + 1);
+            java.util.Map<String, YAML> map = new LinkedHashMap<>();
+            int entry = position + 9;
+            for (int i = 0; i < size; i++) {
+                String key = string(entry);
+                int value = entry + 4 + buffer.getInt(entry);
+                map.put(key, node(value));
+                entry = next(value);
+            }
+            return map;
+        }
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.vaticle.typedb.common.yaml.test;
+
+import com.vaticle.typedb.common.yaml.YAML;
+import com.vaticle.typedb.common.yaml.YAMLEmitter;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class LoaderTest {
+
+    private static final String DOCUMENT = "" +
+            "defaults: &defaults\n" +
+            "  host: localhost\n" +
+            "  port: 1729\n" +
+            "  tags: [a, b]\n" +
+            "server:\n" +
+            "  <<: *defaults\n" +
+            "  port: 1730\n" +
+            "scalars:\n" +
+            "  string: 'quoted'\n" +
+            "  int: 0x1F\n" +
+            "  long: 9000000000\n" +
+            "  big: 123456789012345678901234567890\n" +
+            "  double: 1.5\n" +
+            "  infinity: -.inf\n" +
+            "  bool: yes\n" +
+            "  null: ~\n" +
+            "  timestamp: 2022-01-02T03:04:05.5+01:00\n" +
+            "nested:\n" +
+            "  - [1, [2, 3], {x: y}]\n" +
+            "  - {}\n" +
+            "  - []\n" +
+            "  - *defaults\n";
+
+    private static final List<Function<String, YAML>> LOADERS = List.of(YAML::load, YAML::loadLazily);
+
+    @Test
+    public void streaming_and_lazy_loads_are_equivalent() {
+        assertEquals(YAMLEmitter.emit(YAML.load(DOCUMENT)), YAMLEmitter.emit(YAML.loadLazily(DOCUMENT)));
+        YAML server = YAML.loadLazily(DOCUMENT).asMap().get("server");
+        assertEquals("localhost", server.asMap().get("host").asString().value());
+        assertEquals(1730, server.asMap().get("port").asInt().value());
+    }
+
+    @Test
+    public void redefined_anchor_resolves_to_the_preceding_definition() {
+        String document = "first: &a 1\nx: *a\nsecond: &a 2\ny: *a\n";
+        for (Function<String, YAML> loader : LOADERS) {
+            YAML.Map map = loader.apply(document).asMap();
+            assertEquals(1, map.get("x").asInt().value());
+            assertEquals(2, map.get("y").asInt().value());
+        }
+    }
+
+    @Test
+    public void aliased_maps_and_lists_are_copied_per_reference() {
+        String document = "a: &a {k: [1]}\nb: *a\n";
+        for (Function<String, YAML> loader : LOADERS) {
+            YAML.Map map = loader.apply(document).asMap();
+            map.get("b").asMap().put("k", YAML.Int.of(2));
+            map.get("a").asMap().get("k").asList().content().add(YAML.Int.of(3));
+            assertEquals(2, map.get("a").asMap().get("k").asList().content().size());
+            assertEquals(2, map.get("b").asMap().get("k").asInt().value());
+        }
+    }
+
+    @Test
+    public void null_and_empty_documents_load_as_null() {
+        for (Function<String, YAML> loader : LOADERS) {
+            assertNull(loader.apply("~"));
+            assertNull(loader.apply(""));
+            assertNull(loader.apply("---\n"));
+            assertEquals(true, loader.apply("a: ~").asMap().get("a").isNull());
+        }
+    }
+
+    @Test
+    public void ints_and_longs_widen_to_long() {
+        for (Function<String, YAML> loader : LOADERS) {
+            YAML.Map scalars = loader.apply(DOCUMENT).asMap().get("scalars").asMap();
+            assertEquals(31L, scalars.get("int").longValue());
+            assertEquals(9000000000L, scalars.get("long").longValue());
+            try {
+                scalars.get("double").longValue();
+                fail();
+            } catch (ClassCastException ignored) {
+            }
+        }
+    }
+
+    @Test
+    public void unknown_alias_is_rejected() {
+        for (Function<String, YAML> loader : LOADERS) {
+            try {
+                loader.apply("a: *missing\n");
+                fail();
+            } catch (IllegalStateException e) {
+                assertEquals("Unknown YAML alias 'missing'.", e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void multiple_documents_are_rejected() {
+        for (Function<String, YAML> loader : LOADERS) {
+            try {
+                loader.apply("a: 1\n---\nb: 2\n");
+                fail();
+            } catch (IllegalStateException e) {
+                assertEquals("Expected a single YAML document, but found more.", e.getMessage());
+            }
+        }
+    }
+
+    @Test
+    public void lazy_content_is_built_once_across_threads() throws Exception {
+        int threads = 8;
+        for (int attempt = 0; attempt < 100; attempt++) {
+            YAML.Map map = YAML.loadLazily(DOCUMENT).asMap();
+            ExecutorService executor = Executors.newFixedThreadPool(threads);
+            CountDownLatch start = new CountDownLatch(1);
+            try {
+                List<Future<YAML>> tags = new ArrayList<>();
+                for (int i = 0; i < threads; i++) {
+                    tags.add(executor.submit(() -> {
+                        start.await();
+                        return map.get("defaults").asMap().get("tags");
+                    }));
+                }
+                start.countDown();
+                YAML first = tags.get(0).get();
+                for (Future<YAML> tag : tags) assertSame(first, tag.get());
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+}
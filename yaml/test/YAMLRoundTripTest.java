@@ -0,0 +1,156 @@
+/*
+ * Copyright (C) 2022 Vaticle
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+
+
+package com.vaticle.typedb.common.yaml.test;
+
+import com.vaticle.typedb.common.yaml.YAML;
+import com.vaticle.typedb.common.yaml.YAMLEmitter;
+import com.vaticle.typedb.common.yaml.YAMLSnapshot;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class YAMLRoundTripTest {
+
+    private static final String DOCUMENT = "" +
+            "scalars:\n" +
+            "  string: plain\n" +
+            "  numeric string: '1729'\n" +
+            "  boolean string: 'yes'\n" +
+            "  null string: 'null'\n" +
+            "  empty string: ''\n" +
+            "  indicators: '- a: b # c, [d] {e} &f *g !h'\n" +
+            "  whitespace: \" padded\\tand\\nmultiline \"\n" +
+            "  unicode: \"caf\u00e9 \u2603\"\n" +
+            "  'key: with indicators': true\n" +
+            "  int: -42\n" +
+            "  long: -9223372036854775808\n" +
+            "  big integer: 123456789012345678901234567890\n" +
+            "  double: 1.5e-300\n" +
+            "  infinity: -.inf\n" +
+            "  nan: .nan\n" +
+            "  big decimal: 1.0e+400\n" +
+            "  timestamp: 2022-01-02T03:04:05.5+01:00\n" +
+            "  null: ~\n" +
+            "  false: no\n" +
+            "nested:\n" +
+            "  - [1, []]\n" +
+            "  - {x: y}\n" +
+            "  - {}\n" +
+            "  - ~\n" +
+            "  - - - deep\n";
+
+    private static YAML tree() {
+        return YAML.load(DOCUMENT);
+    }
+
+    @Test
+    public void document_holds_every_kind_of_node() {
+        YAML.Map scalars = tree().asMap().get("scalars").asMap();
+        assertTrue(scalars.get("long").isLong());
+        assertTrue(scalars.get("big integer").isBigInteger());
+        assertTrue(scalars.get("big decimal").isBigDecimal());
+        assertTrue(scalars.get("timestamp").isTimestamp());
+        assertTrue(scalars.get("nan").isDouble());
+        assertTrue(scalars.get("null").isNull());
+        assertEquals(" padded\tand\nmultiline ", scalars.get("whitespace").asString().value());
+    }
+
+    @Test
+    public void emitted_text_loads_as_the_same_tree() {
+        YAML tree = tree();
+        assertTree(tree, YAML.load(YAMLEmitter.emit(tree)));
+    }
+
+    @Test
+    public void emitted_scalar_documents_load_as_the_same_scalar() {
+        assertTree(YAML.Int.of(7), YAML.load(YAMLEmitter.emit(YAML.Int.of(7))));
+        YAML tilde = YAML.load("'~'");
+        assertTree(tilde, YAML.load(YAMLEmitter.emit(tilde)));
+        assertEquals(null, YAML.load(YAMLEmitter.emit(null)));
+    }
+
+    @Test
+    public void snapshot_reads_as_the_same_tree() {
+        YAML tree = tree();
+        assertTree(tree, YAMLSnapshot.read(YAMLSnapshot.write(tree)));
+    }
+
+    @Test
+    public void snapshot_is_read_from_the_buffer_position() {
+        ByteBuffer snapshot = YAMLSnapshot.write(tree());
+        ByteBuffer buffer = ByteBuffer.allocate(snapshot.remaining() + 3);
+        buffer.position(3);
+        buffer.put(snapshot).position(3);
+        assertTree(tree(), YAMLSnapshot.read(buffer));
+        assertEquals(3, buffer.position());
+    }
+
+    @Test
+    public void snapshot_file_reads_as_the_same_tree() throws IOException {
+        Path file = Files.createTempFile("snapshot", ".ysnp");
+        try {
+            YAMLSnapshot.write(tree(), file);
+            assertTree(tree(), YAMLSnapshot.read(file));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void snapshot_of_a_loaded_document_matches_the_document() {
+        YAML loaded = YAML.load("a: &a {b: [1, 2.5, x]}\nc: *a\nd: 2022-01-02\n");
+        assertTree(loaded, YAMLSnapshot.read(YAMLSnapshot.write(loaded)));
+    }
+
+    @Test
+    public void buffer_without_a_snapshot_is_rejected() {
+        try {
+            YAMLSnapshot.read(ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, 5, 6 }));
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertEquals("The buffer does not hold a YAML snapshot.", e.getMessage());
+        }
+    }
+
+    private static void assertTree(YAML expected, YAML actual) {
+        if (expected.isMap()) {
+            assertTrue(actual.isMap());
+            assertEquals(new ArrayList<>(expected.asMap().keys()), new ArrayList<>(actual.asMap().keys()));
+            for (String key : expected.asMap().keys()) assertTree(expected.asMap().get(key), actual.asMap().get(key));
+        } else if (expected.isList()) {
+            assertTrue(actual.isList());
+            List<YAML> expectedList = expected.asList().content();
+            List<YAML> actualList = actual.asList().content();
+            assertEquals(expectedList.size(), actualList.size());
+            for (int i = 0; i < expectedList.size(); i++) assertTree(expectedList.get(i), actualList.get(i));
+        } else {
+            assertEquals(expected.getClass(), actual.getClass());
+            assertEquals(expected.toString(), actual.toString());
+        }
+    }
+}